@@ -0,0 +1,129 @@
+package com.spyder.pao;
+
+import com.spyder.pao.model.EntryType;
+import com.spyder.pao.model.PaoEntry;
+
+import java.util.*;
+
+/**
+ * The normalized values of one entry type across the deck, compiled into a word level automaton. Each canonical form
+ * is a path of word transitions from the start state, ending on an accept state of the entries having it. Checking an
+ * exact answer walks one transition per word, however many alternates the entry has.
+ * <p>
+ * Alternates that normalize to the same canonical form share a path, so answers that aren't an exact match are only
+ * compared against each distinct canonical form of the entry. The forms aren't stored, they are spelled back out from
+ * their accept states.
+ */
+public class AnswerAutomaton {
+
+    private static final int START = 0;
+    private static final int[] NO_STATES = new int[0];
+
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+    // (state << 32 | word id) -> next state
+    private final Map<Long, Integer> transitions = new HashMap<>();
+    // The state before each state and the word id leading from it, the start state's are unused
+    private int[] parents = new int[16];
+    private int[] parentWords = new int[16];
+    private int stateCount = 1;
+    // Entry number -> accept states of its distinct canonical forms, in the order of its values
+    private final Map<String, int[]> acceptStates = new HashMap<>();
+
+    public AnswerAutomaton(List<PaoEntry> entries, EntryType entryType, AnswerNormalizer normalizer) {
+        for (PaoEntry entry : entries) {
+            int[] states = acceptStates.getOrDefault(entry.getNumberStr(), NO_STATES);
+            for (String value : entry.getAllByType(entryType)) {
+                List<String> valueWords = normalizer.normalizeWords(value);
+                // A blank alternate has no words, its form would make an empty answer correct
+                if (valueWords.isEmpty()) {
+                    continue;
+                }
+                int state = addPath(valueWords);
+                if (!contains(states, state)) {
+                    states = Arrays.copyOf(states, states.length + 1);
+                    states[states.length - 1] = state;
+                }
+            }
+            acceptStates.put(entry.getNumberStr(), states);
+        }
+    }
+
+    private int addPath(List<String> pathWords) {
+        int state = START;
+        for (String word : pathWords) {
+            int wordId = wordIds.computeIfAbsent(word, k -> {
+                words.add(k);
+                return words.size() - 1;
+            });
+            Integer next = transitions.get(transition(state, wordId));
+            if (next == null) {
+                next = addState(state, wordId);
+                transitions.put(transition(state, wordId), next);
+            }
+            state = next;
+        }
+        return state;
+    }
+
+    private int addState(int parent, int wordId) {
+        if (stateCount == parents.length) {
+            parents = Arrays.copyOf(parents, stateCount * 2);
+            parentWords = Arrays.copyOf(parentWords, stateCount * 2);
+        }
+        parents[stateCount] = parent;
+        parentWords[stateCount] = wordId;
+        return stateCount++;
+    }
+
+    /**
+     * @param answerWords the answer as normalized by the same {@link AnswerNormalizer}
+     * @return whether the answer is exactly one of the entry's canonical forms
+     */
+    public boolean accepts(String number, List<String> answerWords) {
+        int state = START;
+        for (String word : answerWords) {
+            Integer wordId = wordIds.get(word);
+            Integer next = wordId == null ? null : transitions.get(transition(state, wordId));
+            if (next == null) {
+                return false;
+            }
+            state = next;
+        }
+        return contains(acceptStates.getOrDefault(number, NO_STATES), state);
+    }
+
+    /**
+     * @return the distinct canonical forms of the entry's primary and alternate values, empty if there is no such entry
+     */
+    public List<String> getCanonicalForms(String number) {
+        List<String> forms = new ArrayList<>();
+        for (int state : acceptStates.getOrDefault(number, NO_STATES)) {
+            forms.add(form(state));
+        }
+        return forms;
+    }
+
+    // The words on the path to the state
+    private String form(int state) {
+        List<String> formWords = new ArrayList<>();
+        for (; state != START; state = parents[state]) {
+            formWords.add(words.get(parentWords[state]));
+        }
+        Collections.reverse(formWords);
+        return String.join(" ", formWords);
+    }
+
+    private static boolean contains(int[] states, int state) {
+        for (int s : states) {
+            if (s == state) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long transition(int state, int wordId) {
+        return ((long) state << 32) | wordId;
+    }
+}
@@ -0,0 +1,143 @@
+package com.spyder.pao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Reduces an answer to a canonical form so that wording differences the quizzes shouldn't care about disappear, ie
+ * "sipping the tea" and "drinks tea" both become "drink tea". The same normalizer is applied to deck values and typed
+ * answers, so only the canonical forms need comparing.
+ * <p>
+ * Steps and word lists are read from {@value #CONFIG_FILE} on the classpath.
+ */
+public class AnswerNormalizer {
+
+    public static final String CONFIG_FILE = "normalization.properties";
+
+    private static final AnswerNormalizer DEFAULT = load();
+
+    private final List<Step> steps;
+    private final Set<String> stopwords;
+    // Stemmed word -> stemmed canonical word
+    private final Map<String, String> synonyms;
+
+    public AnswerNormalizer(List<Step> steps, Set<String> stopwords, Map<String, List<String>> synonyms) {
+        this.steps = List.copyOf(steps);
+        this.stopwords = Set.copyOf(stopwords);
+        this.synonyms = new HashMap<>();
+        synonyms.forEach((canonical, words) -> words.forEach(word -> this.synonyms.put(stem(word), stem(canonical))));
+    }
+
+    /**
+     * The normalizer configured in {@value #CONFIG_FILE}, loaded once.
+     */
+    public static AnswerNormalizer getDefault() {
+        return DEFAULT;
+    }
+
+    private static AnswerNormalizer load() {
+        Properties properties = new Properties();
+        try (InputStream in = AnswerNormalizer.class.getResourceAsStream("/" + CONFIG_FILE)) {
+            if (in == null) {
+                System.out.println("[WARN] No " + CONFIG_FILE + " found, answers won't be normalized");
+                return new AnswerNormalizer(List.of(), Set.of(), Map.of());
+            }
+            properties.load(in);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        List<Step> steps = new ArrayList<>();
+        for (String step : list(properties.getProperty("steps", ""))) {
+            try {
+                steps.add(Step.valueOf(step.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                System.out.println("[WARN] Unknown normalization step " + step);
+            }
+        }
+        Map<String, List<String>> synonyms = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith("synonym.")) {
+                synonyms.put(key.substring("synonym.".length()).toLowerCase(), list(properties.getProperty(key)));
+            }
+        }
+        return new AnswerNormalizer(steps, new HashSet<>(list(properties.getProperty("stopwords", ""))), synonyms);
+    }
+
+    private static List<String> list(String value) {
+        return Arrays.stream(value.toLowerCase().split(","))
+                .map(String::trim)
+                .filter(word -> !word.isEmpty())
+                .toList();
+    }
+
+    /**
+     * @return the canonical words of the answer joined by single spaces, empty for a blank answer
+     */
+    public String normalize(String answer) {
+        return String.join(" ", normalizeWords(answer));
+    }
+
+    public List<String> normalizeWords(String answer) {
+        List<String> words = new ArrayList<>();
+        for (String word : answer.toLowerCase().split(" ")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        for (Step step : steps) {
+            switch (step) {
+                case STOPWORDS -> {
+                    // An answer that is all stopwords is kept as it is rather than matching every other one
+                    if (!stopwords.containsAll(words)) {
+                        words.removeIf(stopwords::contains);
+                    }
+                }
+                case STEM -> words.replaceAll(AnswerNormalizer::stem);
+                case SYNONYMS -> words.replaceAll(word -> synonyms.getOrDefault(word, word));
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Light suffix stripping for english verbs and plurals, enough that "run", "runs" and "running" or "slide" and
+     * "sliding" end up the same. Not a full stemmer, words it gets wrong are still caught by the matcher's one character
+     * leeway.
+     */
+    static String stem(String word) {
+        if (word.length() <= 3) {
+            return word;
+        }
+        String stem = word;
+        if (stem.endsWith("ies") && stem.length() > 4) {
+            stem = stem.substring(0, stem.length() - 3) + "y";
+        } else if (stem.endsWith("sses")) {
+            stem = stem.substring(0, stem.length() - 2);
+        } else if (stem.endsWith("s") && !stem.endsWith("ss") && !stem.endsWith("us") && !stem.endsWith("is")) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+        if (stem.endsWith("ing") && stem.length() >= 6) {
+            stem = undouble(stem.substring(0, stem.length() - 3));
+        } else if (stem.endsWith("ed") && !stem.endsWith("eed") && stem.length() >= 5) {
+            stem = undouble(stem.substring(0, stem.length() - 2));
+        }
+        if (stem.endsWith("e") && stem.length() > 3) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+        return stem;
+    }
+
+    // running -> runn -> run, but not falling -> fall
+    private static String undouble(String stem) {
+        int length = stem.length();
+        if (length > 3 && stem.charAt(length - 1) == stem.charAt(length - 2) && "aeiouylsz".indexOf(stem.charAt(length - 1)) < 0) {
+            return stem.substring(0, length - 1);
+        }
+        return stem;
+    }
+
+    public enum Step {
+        STOPWORDS, STEM, SYNONYMS
+    }
+}
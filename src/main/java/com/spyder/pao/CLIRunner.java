@@ -1,13 +1,19 @@
 package com.spyder.pao;
 
+import com.spyder.pao.events.QuizEventBus;
 import com.spyder.pao.model.Command;
+import com.spyder.pao.model.EntrySelection;
+import com.spyder.pao.model.PaoEntry;
 import com.spyder.pao.model.EntryType;
+import com.spyder.pao.model.QuestionOrder;
 import com.spyder.pao.model.QuizConfiguration;
+import com.spyder.pao.model.QuizStatistics;
 import lombok.SneakyThrows;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.function.Consumer;
 
@@ -15,61 +21,180 @@ import static com.spyder.pao.ConsoleColors.*;
 
 public class CLIRunner {
 
-    private final DataSource ds;
-    private final Scanner stdInScanner = new Scanner(System.in);
+    private DataSource ds;
+    // Null when not syncing
+    private final DeckSync deckSync;
+    private final ConsoleInput stdIn;
+    // Commands come from a script rather than someone at the keyboard
+    private final boolean batch;
     private final GivenQuiz givenQuiz;
     private final NumberQuiz numberQuiz;
+    private final PictureQuiz pictureQuiz;
+    private final QuizStatistics totals = new QuizStatistics();
 
     private final String STATE_FILE = "state.properties";
 
     private final QuizConfiguration quizConfiguration;
     private QuizType quizType = QuizType.GIVEN;
     private int timerMinutes = 0; // 0 means timer is off
+    private int drillSeconds = 0; // 0 means no per-question limit
+    private int failedCommands = 0;
 
     public CLIRunner(DataSource ds) {
+        this(ds, QuizEventBus.Backpressure.BLOCK, null);
+    }
+
+    /**
+     * @param backpressure what the given quiz does when its observers fall behind
+     * @param deckSync     started sync whose deck replaces ds once it is done, may be null
+     */
+    public CLIRunner(DataSource ds, QuizEventBus.Backpressure backpressure, DeckSync deckSync) {
+        this(ds, backpressure, deckSync, ConsoleInput.forStdIn(), false);
+    }
+
+    /**
+     * @param input where commands, and answers during quizzes, are read from
+     * @param batch for scripted input: the saved state isn't loaded or written, answers aren't added to the history,
+     *              and {@link #run()} returns 1 if any command failed
+     */
+    public CLIRunner(DataSource ds, QuizEventBus.Backpressure backpressure, DeckSync deckSync, ConsoleInput input, boolean batch) {
         this.ds = ds;
+        this.deckSync = deckSync;
+        this.stdIn = input;
+        this.batch = batch;
         quizConfiguration = new QuizConfiguration();
-        givenQuiz = new GivenQuiz(stdInScanner);
-        numberQuiz = new NumberQuiz(stdInScanner);
+        givenQuiz = new GivenQuiz(stdIn, totals, backpressure, !batch);
+        numberQuiz = new NumberQuiz(stdIn, totals);
+        pictureQuiz = new PictureQuiz(stdIn, totals);
     }
 
-    @SneakyThrows
-    public void begin() {
-        loadState();
+    /**
+     * Reads commands until QUIT or EXIT, or the end of the input.
+     *
+     * @return exit code for the program, 0 unless running a batch where a command failed
+     */
+    public int run() {
+        // A batch starts from the defaults every time and leaves the saved state alone
+        if (!batch) {
+            loadState();
+        }
         while (true) {
-            System.out.println(System.lineSeparator() + currentState());
-            System.out.print("> ");
-            String line = stdInScanner.nextLine();
-            String[] commandTokens = line.split(",");
-            for (String commandToken : commandTokens) {
-                commandToken = commandToken.trim();
-                String[] tokens = commandToken.split(" ");
-                if (tokens.length != 0) {
-                    String firstToken = tokens[0].toLowerCase();
-                    Command command = Command.getCommand(firstToken);
+            applyDeckSync();
+            if (!batch) {
+                System.out.println(System.lineSeparator() + currentState());
+                System.out.print("> ");
+            }
+            String line;
+            try {
+                line = stdIn.nextLine();
+            } catch (NoSuchElementException e) {
+                return exitCode();
+            }
+            if (batch) {
+                if (line.isBlank() || line.trim().startsWith("#")) {
+                    continue;
+                }
+                System.out.println("> " + line);
+            }
+            try {
+                if (!runLine(line)) {
+                    return exitCode();
+                }
+            } catch (NoSuchElementException e) {
+                // Input ran out during a quiz
+                return exitCode();
+            }
+        }
+    }
+
+    private int exitCode() {
+        return failedCommands == 0 ? 0 : 1;
+    }
+
+    /**
+     * @return false if the program should stop
+     */
+    @SneakyThrows
+    private boolean runLine(String line) {
+        for (String commandToken : commandTokens(line)) {
+            String[] tokens = commandToken.split(" ");
+            if (tokens.length != 0) {
+                String firstToken = tokens[0].toLowerCase();
+                Command command = Command.getCommand(firstToken);
+                try {
                     switch (command) {
                         case HELP -> help();
-                        case FROM -> quizConfiguration.setMinEntry(Integer.parseInt(tokens[1]));
-                        case TO -> quizConfiguration.setMaxEntry(Integer.parseInt(tokens[1]));
+                        case FROM -> quizConfiguration.setMinEntry(entryNumber(tokens[1]));
+                        case TO -> quizConfiguration.setMaxEntry(entryNumber(tokens[1]));
+                        case SELECT, ONLY -> select(commandToken, command == Command.ONLY);
                         case GIVEN, ANSWER -> {
                             Consumer<EntryType> setter = Command.GIVEN == command ? quizConfiguration::setGivenEntryType : quizConfiguration::setAnswerEntryType;
                             Optional<EntryType> type = Optional.ofNullable(EntryType.valueOfNullable(tokens[1].toUpperCase()));
                             type.ifPresentOrElse(
                                     setter,
-                                    () -> System.out.printf("Invalid %s type", command)
+                                    () -> fail(String.format("Invalid %s type", command))
                             );
                         }
                         case QUIZ_TYPE -> setQuizType(tokens);
                         case TIMER -> setTimer(tokens);
+                        case DRILL -> setDrill(tokens);
+                        case ORDER -> setOrder(tokens);
+                        case SIMULATE -> simulate(tokens);
                         case LIST -> listEntities();
-                        case BEGIN_QUIZ -> quiz();
-                        case QUIT, EXIT -> System.exit(0);
-                        case null -> System.out.println(color(RED, "Unrecognized command"));
+                        case FIND -> find(commandToken);
+                        case STATS -> totals.snapshot().print();
+                        case HINT -> System.out.println("HINT can be used as an answer during a quiz");
+                        case LINT -> DeckLinter.printFindings(DeckLinter.lint(ds.getEntries()));
+                        case REPORT -> ReportGenerator.generate(Path.of(SessionHistory.HISTORY_DIR), Path.of(ReportGenerator.REPORT_DIR));
+                        case BEGIN_QUIZ -> {
+                            if (!quiz()) {
+                                return false;
+                            }
+                        }
+                        case QUIT, EXIT -> {
+                            return false;
+                        }
+                        case null -> fail("Unrecognized command");
                     }
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    fail("Invalid " + command + " value");
                 }
             }
         }
+        return true;
+    }
+
+    // Selections and searches can have commas in them, so they take the rest of the line
+    private static List<String> commandTokens(String line) {
+        Command lineCommand = Command.getCommand(line.trim().split(" ")[0].toLowerCase());
+        if (lineCommand == Command.SELECT || lineCommand == Command.ONLY || lineCommand == Command.FIND) {
+            return List.of(line.trim());
+        }
+        return Arrays.stream(line.split(",")).map(String::trim).toList();
+    }
 
+    // A failed command in a batch makes its exit code 1, the rest of the batch still runs
+    private void fail(String message) {
+        failedCommands++;
+        System.out.println(color(RED, message));
+    }
+
+    // Swaps in the synced deck between commands, never during a quiz
+    private void applyDeckSync() {
+        if (deckSync == null) {
+            return;
+        }
+        String failure = deckSync.takeFailure();
+        if (failure != null) {
+            System.out.println("[WARN] Deck sync from " + deckSync.describe() + " failed - " + failure);
+        }
+        DataSource synced = deckSync.takeUpdate();
+        if (synced != null) {
+            ds = synced;
+            List<PaoEntry> entries = ds.getEntries();
+            System.out.println("✓ Deck updated from " + deckSync.describe() + ", " + entries.size() + " entries");
+            DeckLinter.printFindings(DeckLinter.lint(entries));
+        }
     }
 
     private String stateFileLocation() {
@@ -85,12 +210,15 @@ public class CLIRunner {
                 try {
                     PropertyKey key = PropertyKey.valueOf(tokens[0]);
                     switch (key) {
-                        case FROM -> quizConfiguration.setMinEntry(Integer.parseInt(tokens[1]));
-                        case TO -> quizConfiguration.setMaxEntry(Integer.parseInt(tokens[1]));
+                        case FROM -> quizConfiguration.setMinEntry(entryNumber(tokens[1]));
+                        case TO -> quizConfiguration.setMaxEntry(entryNumber(tokens[1]));
                         case GIVEN -> quizConfiguration.setGivenEntryType(EntryType.valueOf(tokens[1]));
                         case ANSWER -> quizConfiguration.setAnswerEntryType(EntryType.valueOf(tokens[1]));
                         case QUIZ -> quizType = QuizType.valueOf(tokens[1]);
                         case TIMER -> timerMinutes = Integer.parseInt(tokens[1]);
+                        case DRILL -> drillSeconds = Integer.parseInt(tokens[1]);
+                        case ORDER -> quizConfiguration.setOrder(QuestionOrder.valueOf(tokens[1]));
+                        case SELECTION -> loadSelection(tokens.length > 1 ? tokens[1] : "");
                     }
                 } catch (IllegalArgumentException e) {
                     System.out.println("[WARN] No PropertyKey for value " + tokens[0]);
@@ -99,6 +227,20 @@ public class CLIRunner {
         }
     }
 
+    // A saved selection that no longer fits the deck is dropped, leaving the FROM..TO range
+    private void loadSelection(String spec) {
+        try {
+            quizConfiguration.setSelection(EntrySelection.parse(spec, ds.getLastNumber()));
+        } catch (IllegalArgumentException e) {
+            System.out.println("[WARN] Ignoring saved selection - " + e.getMessage());
+        }
+    }
+
+    // FROM and TO past the deck's last entry stop at it, so a range never spans more numbers than the deck has
+    private int entryNumber(String value) {
+        return Math.min(Integer.parseInt(value), ds.getLastNumber());
+    }
+
     // Write the quiz state to state.properties so it will be loaded next time the program runs
     @SneakyThrows
     private void writeState() {
@@ -110,18 +252,94 @@ public class CLIRunner {
                 PropertyKey.GIVEN.name() + "=" + quizConfiguration.getGivenEntryType(),
                 PropertyKey.ANSWER.name() + "=" + quizConfiguration.getAnswerEntryType(),
                 PropertyKey.QUIZ.name() + "=" + quizType.name(),
-                PropertyKey.TIMER.name() + "=" + timerMinutes
+                PropertyKey.TIMER.name() + "=" + timerMinutes,
+                PropertyKey.DRILL.name() + "=" + drillSeconds,
+                PropertyKey.ORDER.name() + "=" + quizConfiguration.getOrder()
         );
+        // Written after FROM and TO, which would reset it when loaded
+        if (!quizConfiguration.isRangeSelection()) {
+            configOutput += System.lineSeparator() + PropertyKey.SELECTION.name() + "=" + quizConfiguration.getSelection();
+        }
         myWriter.write(configOutput + System.lineSeparator());
         myWriter.close();
     }
 
+    /**
+     * Selects entries by number, range and "missed" for the entries missed in the last session, ie
+     * "select 0-9, 40-49, 63". With intersect, narrows the current selection down instead.
+     */
+    private void select(String commandToken, boolean intersect) {
+        String[] terms = commandToken.trim().split("[,\\s]+");
+        if (terms.length < 2) {
+            fail("Selection needs entry numbers, ranges or 'missed'");
+            return;
+        }
+        StringBuilder spec = new StringBuilder();
+        boolean missed = false;
+        for (int i = 1; i < terms.length; i++) {
+            if (terms[i].equalsIgnoreCase("missed")) {
+                missed = true;
+            } else {
+                spec.append(terms[i]).append(' ');
+            }
+        }
+        EntrySelection selection;
+        try {
+            selection = EntrySelection.parse(spec.toString(), ds.getLastNumber());
+        } catch (IllegalArgumentException e) {
+            fail(e.getMessage());
+            return;
+        }
+        if (missed) {
+            EntrySelection lastMissed = SessionHistory.readLastMissed(ds.getLastNumber());
+            if (lastMissed.isEmpty()) {
+                System.out.println("No entries were missed last session");
+            }
+            selection = selection.union(lastMissed);
+        }
+        if (intersect) {
+            selection = quizConfiguration.getSelection().intersect(selection);
+        }
+        if (selection.isEmpty()) {
+            System.out.println("Nothing selected, keeping " + quizConfiguration.describeSelection());
+            return;
+        }
+        quizConfiguration.setSelection(selection);
+    }
+
+    private void setOrder(String[] tokens) {
+        QuestionOrder order = tokens.length > 1 ? QuestionOrder.valueOfNullable(tokens[1].toUpperCase()) : null;
+        if (order == null) {
+            fail("Invalid order - use " + Arrays.toString(QuestionOrder.values()));
+            return;
+        }
+        quizConfiguration.setOrder(order);
+    }
+
+    // Compares the question orders on the selected entries with simulated learners, see LearnerSimulator
+    private void simulate(String[] tokens) {
+        try {
+            int learners = tokens.length > 1 ? Integer.parseInt(tokens[1]) : LearnerSimulator.DEFAULT_LEARNERS;
+            long seed = tokens.length > 2 ? Long.parseLong(tokens[2]) : System.nanoTime();
+            int entries = ds.getEntries(quizConfiguration).size();
+            if (entries == 0 || learners < 1) {
+                fail("Simulation needs selected entries and at least one learner");
+                return;
+            }
+            long start = System.nanoTime();
+            new LearnerSimulator(entries, learners, seed).run().print();
+            System.out.printf("✓ Simulated in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+        } catch (NumberFormatException e) {
+            fail("Usage: SIMULATE [learners] [seed]");
+        }
+    }
+
     private void setQuizType(String[] tokens) {
         String inputQuizType = tokens[1];
         try {
             quizType = QuizType.valueOf(inputQuizType.toUpperCase());
         } catch (IllegalArgumentException e) {
-            System.out.println("Quiz type not found - " + inputQuizType);
+            fail("Quiz type not found - " + inputQuizType);
         }
     }
 
@@ -134,26 +352,93 @@ public class CLIRunner {
             try {
                 timerMinutes = Integer.parseInt(timerValue);
                 if (timerMinutes < 0) {
-                    System.out.println("Timer must be a positive number or 'off'");
+                    fail("Timer must be a positive number or 'off'");
                     timerMinutes = 0;
                 } else {
                     System.out.println("Timer set to " + timerMinutes + " minute" + (timerMinutes == 1 ? "" : "s"));
                 }
             } catch (NumberFormatException e) {
-                System.out.println("Invalid timer value - use a number or 'off'");
+                fail("Invalid timer value - use a number or 'off'");
+            }
+        }
+    }
+
+    private void setDrill(String[] tokens) {
+        String drillValue = tokens[1].toLowerCase();
+        if ("off".equals(drillValue)) {
+            drillSeconds = 0;
+            System.out.println("Speed drill disabled");
+        } else {
+            try {
+                drillSeconds = Integer.parseInt(drillValue);
+                if (drillSeconds < 0) {
+                    fail("Drill must be a positive number or 'off'");
+                    drillSeconds = 0;
+                } else {
+                    System.out.println("Speed drill set to " + drillSeconds + " second" + (drillSeconds == 1 ? "" : "s") + " per question");
+                }
+            } catch (NumberFormatException e) {
+                fail("Invalid drill value - use a number or 'off'");
             }
         }
     }
 
     private void listEntities() {
-        ds.getEntries(quizConfiguration).forEach(paoEntry -> System.out.println(
-                        String.join(" | ",
-                                paoEntry.getNumberStr(),
-                                color(CYAN, paoEntry.getPerson()),
-                                color(GREEN, paoEntry.getAction()),
-                                color(PURPLE, paoEntry.getObject()))
-                )
-        );
+        try (Pager pager = new Pager(stdIn)) {
+            for (PaoEntry paoEntry : ds.getEntries(quizConfiguration)) {
+                appendEntry(pager, paoEntry);
+                if (!pager.endLine()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    // Searches the whole deck, not just the selection
+    private void find(String commandToken) {
+        String[] parts = commandToken.split(" ", 2);
+        String text = parts.length > 1 ? parts[1].trim().toLowerCase() : "";
+        if (text.isEmpty()) {
+            fail("Usage: FIND [text]");
+            return;
+        }
+        // Only the query is timed, not building the index if the deck changed since it loaded
+        TrigramIndex searchIndex = ds.getSearchIndex();
+        long start = System.nanoTime();
+        List<PaoEntry> found = searchIndex.find(text);
+        long elapsed = System.nanoTime() - start;
+        try (Pager pager = new Pager(stdIn)) {
+            for (PaoEntry paoEntry : found) {
+                appendEntry(pager, paoEntry);
+                // Point out the alternate when that is the only place the text is
+                if (!paoEntry.getNumberStr().contains(text) && !paoEntry.getPerson().contains(text)
+                        && !paoEntry.getAction().contains(text) && !paoEntry.getObject().contains(text)) {
+                    pager.append(" ~ ").append(YELLOW, matchingAlternate(paoEntry, text));
+                }
+                if (!pager.endLine()) {
+                    break;
+                }
+            }
+        }
+        System.out.printf("%d entr%s matching '%s' (%.3f ms)%n", found.size(), found.size() == 1 ? "y" : "ies", text, elapsed / 1e6);
+    }
+
+    private static String matchingAlternate(PaoEntry paoEntry, String text) {
+        for (EntryType entryType : List.of(EntryType.NUMBER, EntryType.PERSON, EntryType.ACTION, EntryType.OBJECT)) {
+            for (String value : paoEntry.getAllByType(entryType)) {
+                if (value.contains(text)) {
+                    return value.trim();
+                }
+            }
+        }
+        return "";
+    }
+
+    private static void appendEntry(Pager pager, PaoEntry paoEntry) {
+        pager.append(paoEntry.getNumberStr())
+                .append(" | ").append(CYAN, paoEntry.getPerson())
+                .append(" | ").append(GREEN, paoEntry.getAction())
+                .append(" | ").append(PURPLE, paoEntry.getObject());
     }
 
     private void help() {
@@ -163,10 +448,20 @@ public class CLIRunner {
 Commands:
   FROM [start number]
   TO [end number]
+  SELECT [numbers, ranges like 40-49, MISSED]
+  ONLY [numbers, ranges like 40-49, MISSED] - narrows the current selection
   GIVEN [NUMBER | PERSON | ACTION | OBJECT | RANDOM]
   ANSWER [NUMBER | PERSON | ACTION | OBJECT | RANDOM]
-  QUIZ [NUMBER | GIVEN]
+  QUIZ [NUMBER | GIVEN | PICTURE]
   TIMER [minutes | off]
+  DRILL [seconds per question | off]
+  ORDER [SHUFFLE | WEIGHTED | SPACED]
+  SIMULATE [learners] [seed] - compares the orders on simulated learners
+  LIST - entries in the selection
+  FIND [text] - entries with any value containing the text
+  STATS
+  LINT
+  REPORT
   BEGIN / START
   QUIT / EXIT
                 """
@@ -175,29 +470,38 @@ Commands:
 
     private String currentState() {
         String timerStr = timerMinutes > 0 ? timerMinutes + " min" : "off";
+        String drillStr = drillSeconds > 0 ? drillSeconds + " sec" : "off";
         return "quiz " + quizType.name()
                 + ", given " + quizConfiguration.getGivenEntryType().name()
                 + ", answer " + quizConfiguration.getAnswerEntryType().name()
-                + ", " + quizConfiguration.getMinEntry() + ".." + quizConfiguration.getMaxEntry()
-                + ", timer " + timerStr;
+                + ", " + quizConfiguration.describeSelection() + (quizConfiguration.isRangeSelection() ? "" : " (" + quizConfiguration.getSelection().size() + " entries)")
+                + ", timer " + timerStr
+                + ", drill " + drillStr
+                + ", order " + quizConfiguration.getOrder().name();
     }
 
-    public void quiz() {
-        writeState();
-        switch (quizType) {
-            case NUMBER -> numberQuiz.beginQuiz(quizConfiguration, ds, timerMinutes);
-            case GIVEN -> givenQuiz.beginQuiz(quizConfiguration, ds, timerMinutes);
+    /**
+     * @return false if EXIT was entered during the quiz
+     */
+    public boolean quiz() {
+        if (!batch) {
+            writeState();
         }
+        return switch (quizType) {
+            case NUMBER -> numberQuiz.beginQuiz(quizConfiguration, ds, timerMinutes, drillSeconds);
+            case GIVEN -> givenQuiz.beginQuiz(quizConfiguration, ds, timerMinutes, drillSeconds);
+            case PICTURE -> pictureQuiz.beginQuiz(quizConfiguration, ds, timerMinutes, drillSeconds);
+        };
     }
 
 
 
     private enum PropertyKey {
-        FROM, TO, GIVEN, ANSWER, QUIZ, TIMER
+        FROM, TO, GIVEN, ANSWER, QUIZ, TIMER, DRILL, ORDER, SELECTION
     }
 
     private enum QuizType {
-        GIVEN, NUMBER
+        GIVEN, NUMBER, PICTURE
     }
 
 }
@@ -0,0 +1,265 @@
+package com.spyder.pao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Line input read on a background thread, so callers can wait for an answer with a deadline instead of blocking
+ * indefinitely like {@link java.util.Scanner#nextLine()}. Each line is stamped with {@link System#nanoTime()} when
+ * Enter is pressed, so latency isn't skewed by when the quiz loop gets around to reading it.
+ * <p>
+ * When stdin is a terminal, it is read in raw mode one keystroke at a time, echoing and handling backspace here, so
+ * the first keystroke of each line is timestamped too. Piped input falls back to plain line reading.
+ * <p>
+ * A scripted input, see {@link #ofLines}, has no thread at all and hands out its lines as soon as they are asked for.
+ */
+public class ConsoleInput {
+
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+    // firstKeyNanos of lines read in line mode, where keystrokes can't be seen
+    public static final long NO_KEY_TIME = -1;
+
+    // Used when the terminal size can't be read
+    private static final int DEFAULT_PAGE_LINES = 22;
+
+    private static final Line END_OF_INPUT = new Line(null, NO_KEY_TIME, 0);
+    private static final int BACKSPACE = 0x08;
+    private static final int DELETE = 0x7f;
+    private static final int END_OF_TRANSMISSION = 0x04;
+    private static final int ESCAPE = 0x1b;
+    private static final int TAB = 0x09;
+
+    private final InputStream in;
+    private final RawTerminal rawTerminal;
+    // Null unless scripted
+    private final Iterator<String> script;
+    private final BlockingQueue<Line> lines = new LinkedBlockingQueue<>();
+    private volatile UnaryOperator<String> completer;
+    private Thread readerThread;
+
+    public ConsoleInput(InputStream in) {
+        this(in, null, null);
+    }
+
+    private ConsoleInput(InputStream in, RawTerminal rawTerminal, Iterator<String> script) {
+        this.in = in;
+        this.rawTerminal = rawTerminal;
+        this.script = script;
+    }
+
+    /**
+     * Input from System.in, in raw mode if it is a terminal.
+     */
+    public static ConsoleInput forStdIn() {
+        return new ConsoleInput(System.in, RawTerminal.enterRawMode(), null);
+    }
+
+    /**
+     * Scripted input, for running commands and answering quizzes without anyone at the keyboard. Each line is entered
+     * the moment it is read, so deadlines never pass and answer times are close to 0.
+     */
+    public static ConsoleInput ofLines(List<String> lines) {
+        return new ConsoleInput(null, null, List.copyOf(lines).iterator());
+    }
+
+    /**
+     * Sets what Tab completes the current line with, in raw mode. The completer gets the text typed so far and returns
+     * it extended, or unchanged if there is nothing to add.
+     *
+     * @param completer null to ignore Tab
+     */
+    public void setCompleter(UnaryOperator<String> completer) {
+        this.completer = completer;
+    }
+
+    /**
+     * @return lines of output that fit on the terminal's screen with a prompt below them, or 0 if input isn't from a
+     * terminal so output shouldn't stop for it
+     */
+    public int pageLines() {
+        if (rawTerminal == null) {
+            return 0;
+        }
+        int rows = rawTerminal.rows();
+        return rows > 2 ? rows - 2 : DEFAULT_PAGE_LINES;
+    }
+
+    /**
+     * Blocks until a line is entered, same as {@link java.util.Scanner#nextLine()}.
+     */
+    public String nextLine() {
+        return nextLine(NO_DEADLINE).text();
+    }
+
+    /**
+     * @param deadlineNanos {@link System#nanoTime()} value to stop waiting at, or {@link #NO_DEADLINE}
+     * @return the entered line, or null if the deadline passed first
+     */
+    public Line nextLine(long deadlineNanos) {
+        if (script != null) {
+            if (!script.hasNext()) {
+                throw new NoSuchElementException("No line found");
+            }
+            return new Line(script.next(), NO_KEY_TIME, System.nanoTime());
+        }
+        startReader();
+        Line line;
+        try {
+            if (deadlineNanos == NO_DEADLINE) {
+                line = lines.take();
+            } else {
+                line = lines.poll(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for input", e);
+        }
+        if (line == END_OF_INPUT) {
+            // Leave the marker for any later reads
+            lines.add(END_OF_INPUT);
+            throw new NoSuchElementException("No line found");
+        }
+        return line;
+    }
+
+    private synchronized void startReader() {
+        if (readerThread != null) {
+            return;
+        }
+        readerThread = new Thread(rawTerminal != null ? this::readKeys : this::readLines, "console-input");
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    private void readLines() {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(in))) {
+            String text;
+            while ((text = br.readLine()) != null) {
+                lines.add(new Line(text, NO_KEY_TIME, System.nanoTime()));
+            }
+        } catch (IOException e) {
+            System.out.println("[WARN] Stopped reading input - " + e.getMessage());
+        }
+        lines.add(END_OF_INPUT);
+    }
+
+    // Raw mode, the terminal doesn't echo or buffer so that's done here
+    private void readKeys() {
+        byte[] buffer = new byte[256];
+        int length = 0;
+        long firstKeyNanos = NO_KEY_TIME;
+        try {
+            int key;
+            while ((key = in.read()) != -1) {
+                long now = System.nanoTime();
+                if (key == '\n' || key == '\r') {
+                    System.out.println();
+                    // Enter on its own counts as the first key
+                    lines.add(new Line(new String(buffer, 0, length, StandardCharsets.UTF_8), firstKeyNanos == NO_KEY_TIME ? now : firstKeyNanos, now));
+                    length = 0;
+                    firstKeyNanos = NO_KEY_TIME;
+                    continue;
+                }
+                if (key == END_OF_TRANSMISSION && length == 0) {
+                    break;
+                }
+                if (firstKeyNanos == NO_KEY_TIME) {
+                    firstKeyNanos = now;
+                }
+                if (key == BACKSPACE || key == DELETE) {
+                    if (length > 0) {
+                        // Drop UTF-8 continuation bytes along with the character's first byte
+                        do {
+                            length--;
+                        } while (length > 0 && (buffer[length] & 0xc0) == 0x80);
+                        System.out.print("\b \b");
+                    }
+                } else if (key == ESCAPE) {
+                    skipEscapeSequence();
+                } else if (key == TAB) {
+                    byte[] added = completion(buffer, length);
+                    if (length + added.length > buffer.length) {
+                        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + added.length));
+                    }
+                    System.arraycopy(added, 0, buffer, length, added.length);
+                    length += added.length;
+                    System.out.write(added, 0, added.length);
+                } else if (key >= ' ') {
+                    if (length == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, length * 2);
+                    }
+                    buffer[length++] = (byte) key;
+                    System.out.write(key);
+                }
+                System.out.flush();
+            }
+        } catch (IOException e) {
+            System.out.println("[WARN] Stopped reading input - " + e.getMessage());
+        }
+        rawTerminal.restore();
+        lines.add(END_OF_INPUT);
+    }
+
+    /**
+     * @return bytes to append to the first length bytes of the buffer to complete it, empty if there is nothing to add
+     */
+    private byte[] completion(byte[] buffer, int length) {
+        UnaryOperator<String> current = completer;
+        if (current == null) {
+            return new byte[0];
+        }
+        String typed = new String(buffer, 0, length, StandardCharsets.UTF_8);
+        String completed = current.apply(typed);
+        if (completed.length() <= typed.length() || !completed.startsWith(typed)) {
+            return new byte[0];
+        }
+        return completed.substring(typed.length()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Arrow and function keys send ESC [ ... final byte, none of which should end up in the answer
+    private void skipEscapeSequence() throws IOException {
+        if (in.read() != '[') {
+            return;
+        }
+        int key;
+        do {
+            key = in.read();
+        } while (key != -1 && (key < 0x40 || key > 0x7e));
+    }
+
+    /**
+     * @param text          the entered text without the line terminator
+     * @param firstKeyNanos {@link System#nanoTime()} of the line's first keystroke, or {@link #NO_KEY_TIME} in line mode
+     * @param enteredNanos  {@link System#nanoTime()} when Enter was pressed
+     */
+    public record Line(String text, long firstKeyNanos, long enteredNanos) {
+
+        /**
+         * @return time from the prompt to Enter, 0 for type-ahead or piped lines entered before the prompt was shown
+         */
+        public long latencyNanos(long promptNanos) {
+            return Math.max(0, enteredNanos - promptNanos);
+        }
+
+        /**
+         * @return time from the prompt to the first keystroke, or -1 if keystrokes weren't timed
+         */
+        public long recallNanos(long promptNanos) {
+            if (firstKeyNanos == NO_KEY_TIME) {
+                return -1;
+            }
+            return Math.max(0, firstKeyNanos - promptNanos);
+        }
+    }
+}
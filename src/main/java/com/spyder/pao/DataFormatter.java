@@ -1,11 +1,11 @@
 package com.spyder.pao;
 
+import com.spyder.pao.jfr.DataFormatEvent;
 import com.spyder.pao.model.PaoEntry;
 import lombok.SneakyThrows;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,33 +15,47 @@ public class DataFormatter {
     private static final String DELIMITER_REGEX = "\\|";
     private static final int COLUMNS = 8;
 
+    /**
+     * Formats raw sheet data into the data file's aligned columns, without writing or printing anything.
+     */
+    public static String formatData(String rawData) {
+        return formatEntries(parseData(rawData));
+    }
+
+    /**
+     * @return the entries of raw sheet data, in row order
+     */
     @SneakyThrows
-    public static void formatDataFile(String filePath) {
-        List<PaoEntry> entries = parseRawData(filePath);
+    public static List<PaoEntry> parseData(String rawData) {
+        return parseRawData(new BufferedReader(new StringReader(rawData)));
+    }
+
+    public static String formatEntries(List<PaoEntry> entries) {
+        DataFormatEvent event = new DataFormatEvent();
+        event.begin();
         String formattedData = generateFormattedOutput(entries);
-        writeFormattedData(formattedData, filePath);
-        System.out.println("✓ Formatted " + entries.size() + " entries");
+        event.entries = entries.size();
+        event.commit();
+        return formattedData;
     }
 
-    private static List<PaoEntry> parseRawData(String filePath) throws Exception {
+    private static List<PaoEntry> parseRawData(BufferedReader br) throws Exception {
         List<PaoEntry> entries = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            int row = 0;
-            while ((line = br.readLine()) != null) {
-                row++;
-                line = line.replace("\"", ""); // Strip quotes
-                String[] values = line.split(DELIMITER_REGEX, -1);
-
-                if (values.length < COLUMNS) {
-                    throw new IllegalStateException(
-                        "Row " + row + " has " + values.length + " columns, expected " + COLUMNS
-                    );
-                }
-
-                PaoEntry entry = createPaoEntry(values);
-                entries.add(entry);
+        String line;
+        int row = 0;
+        while ((line = br.readLine()) != null) {
+            row++;
+            line = line.replace("\"", ""); // Strip quotes
+            String[] values = line.split(DELIMITER_REGEX, -1);
+
+            if (values.length < COLUMNS) {
+                throw new IllegalStateException(
+                    "Row " + row + " has " + values.length + " columns, expected " + COLUMNS
+                );
             }
+
+            PaoEntry entry = createPaoEntry(values);
+            entries.add(entry);
         }
         return entries;
     }
@@ -74,13 +88,6 @@ public class DataFormatter {
         return maxLengths;
     }
 
-    @SneakyThrows
-    private static void writeFormattedData(String data, String filePath) {
-        try (FileWriter writer = new FileWriter(filePath)) {
-            writer.write(data);
-        }
-    }
-
     private static String padRight(String s, int n) {
         return String.format("%-" + n + "s", s);
     }
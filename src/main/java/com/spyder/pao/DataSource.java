@@ -1,5 +1,8 @@
 package com.spyder.pao;
 
+import com.spyder.pao.jfr.DataLoadEvent;
+import com.spyder.pao.jfr.GetEntriesEvent;
+import com.spyder.pao.model.EntryType;
 import com.spyder.pao.model.PaoEntry;
 import com.spyder.pao.model.QuizConfiguration;
 import lombok.SneakyThrows;
@@ -8,10 +11,15 @@ import java.io.BufferedReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 public class DataSource {
 
@@ -22,6 +30,13 @@ public class DataSource {
     private static final int COLUMNS = 8;
 
     private final List<PaoEntry> entries;
+    private PhraseIndex phraseIndex;
+    private TrigramIndex searchIndex;
+    // Rows of the entries numbered n are rows[rowStarts[n]] until rowStarts[n + 1], built lazily
+    private int[] rowStarts;
+    private int[] rows;
+    private final Map<EntryType, PrefixTrie> completionTries = new EnumMap<>(EntryType.class);
+    private final Map<EntryType, AnswerAutomaton> answerAutomatons = new EnumMap<>(EntryType.class);
 
     private static final String DATA_FILE = "data.txt";
 
@@ -31,30 +46,129 @@ public class DataSource {
 
     public void addEntry(PaoEntry entry) {
         entries.add(entry);
+        phraseIndex = null;
+        searchIndex = null;
+        rowStarts = null;
+        completionTries.clear();
+        answerAutomatons.clear();
     }
 
-    private List<PaoEntry> getEntries() {
+    public List<PaoEntry> getEntries() {
         return new ArrayList<>(entries);
     }
 
     public List<PaoEntry> getEntries(QuizConfiguration quizConfiguration) {
-        return getEntries().stream()
-                .filter(paoEntry -> paoEntry.getNumber() >= quizConfiguration.getMinEntry()
-                        && paoEntry.getNumber() <= quizConfiguration.getMaxEntry()
-                )
-                .collect(Collectors.toList());
+        GetEntriesEvent event = new GetEntriesEvent();
+        event.begin();
+        // Only the selected numbers are visited, not the whole deck
+        List<PaoEntry> selected = new ArrayList<>();
+        int lastNumber = getLastNumber();
+        quizConfiguration.getSelection().numbers()
+                .takeWhile(number -> number <= lastNumber)
+                .forEach(number -> {
+                    for (int i = rowStarts[number]; i < rowStarts[number + 1]; i++) {
+                        selected.add(entries.get(rows[i]));
+                    }
+                });
+        event.entries = selected.size();
+        event.commit();
+        return selected;
+    }
+
+    /**
+     * @return highest entry number in the deck, -1 if it is empty
+     */
+    public int getLastNumber() {
+        if (rowStarts == null) {
+            indexRows();
+        }
+        return rowStarts.length - 2;
+    }
+
+    // Counting sort of the rows by entry number
+    private void indexRows() {
+        int size = entries.size();
+        int[] numbers = new int[size];
+        int maxNumber = -1;
+        for (int row = 0; row < size; row++) {
+            numbers[row] = entries.get(row).getNumber();
+            maxNumber = Math.max(maxNumber, numbers[row]);
+        }
+        int[] starts = new int[maxNumber + 2];
+        for (int number : numbers) {
+            starts[number + 1]++;
+        }
+        for (int number = 0; number <= maxNumber; number++) {
+            starts[number + 1] += starts[number];
+        }
+        int[] next = Arrays.copyOf(starts, starts.length);
+        rows = new int[size];
+        for (int row = 0; row < size; row++) {
+            rows[next[numbers[row]]++] = row;
+        }
+        rowStarts = starts;
+    }
+
+    // Built lazily on first use, discarded whenever the entries change
+    public PhraseIndex getPhraseIndex() {
+        if (phraseIndex == null) {
+            phraseIndex = new PhraseIndex(entries);
+        }
+        return phraseIndex;
+    }
+
+    /**
+     * Substring index over every value of every entry, built when the deck loads and again on first use after entries are
+     * added. It only holds row numbers and reads the rows back from this deck.
+     */
+    public TrigramIndex getSearchIndex() {
+        if (searchIndex == null) {
+            searchIndex = new TrigramIndex(entries.size(), entries::get);
+        }
+        return searchIndex;
+    }
+
+    /**
+     * Trie of every primary and alternate value of the entry type, built on first use for each type.
+     */
+    public PrefixTrie getCompletionTrie(EntryType entryType) {
+        return completionTries.computeIfAbsent(entryType, type -> new PrefixTrie(entries.stream()
+                .flatMap(entry -> entry.getAllByType(type).stream())
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .toList()));
+    }
+
+    /**
+     * Normalized values of the entry type, compiled on first use for each type and discarded whenever the entries change.
+     */
+    public AnswerAutomaton getAnswerAutomaton(EntryType entryType) {
+        return answerAutomatons.computeIfAbsent(entryType, type -> new AnswerAutomaton(entries, type, AnswerNormalizer.getDefault()));
     }
 
     public static DataSource createAndLoad() {
         DataSource ds = new DataSource();
-        ds.load();
+        ds.load(new InputStreamReader(Objects.requireNonNull(DataSource.class.getResourceAsStream("/" + DATA_FILE))));
         return ds;
     }
 
-    private void load() {
-        entries.clear();
+    /**
+     * Loads the data file at the given path instead of the copy on the classpath, which is only updated by a build.
+     */
+    public static DataSource createAndLoad(Path dataFile) throws IOException {
+        DataSource ds = new DataSource();
+        ds.load(Files.newBufferedReader(dataFile));
+        return ds;
+    }
+
+    private void load(Reader reader) {
+        if (!entries.isEmpty()) {
+            throw new IllegalStateException("Data already loaded");
+        }
+        DataLoadEvent event = new DataLoadEvent();
+        event.begin();
         int row = 0;
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(Objects.requireNonNull(DataSource.class.getResourceAsStream("/" + DATA_FILE))))) {
+        try (BufferedReader br = new BufferedReader(reader)) {
             row++;
             String line;
             while ((line = br.readLine()) != null) {
@@ -71,6 +185,10 @@ public class DataSource {
             System.out.println("ERROR ON ROW " + row);
             throw new RuntimeException(e);
         }
+        // Built up front so the first find is as fast as the rest
+        getSearchIndex();
+        event.entries = entries.size();
+        event.commit();
     }
 
 
@@ -89,7 +207,7 @@ public class DataSource {
         };
     }
 
-    private String getCsvValue(PaoEntry entry, int column) {
+    static String getCsvValue(PaoEntry entry, int column) {
         return switch(column) {
             case 0 -> entry.getNumberStr();
             case 1 -> entry.getPerson();
@@ -102,6 +220,4 @@ public class DataSource {
             default -> throw new IllegalStateException("Unexpected column number " + column);
         };
     }
-
-
 }
@@ -0,0 +1,17 @@
+package com.spyder.pao;
+
+import java.io.IOException;
+
+/**
+ * Source of fresh deck data for {@link DeckSync}, in the raw format copied out of the sheet, before
+ * {@link DataFormatter} pads it.
+ */
+public interface DeckFetcher {
+
+    String fetch() throws IOException;
+
+    /**
+     * Where the data comes from, for messages.
+     */
+    String describe();
+}
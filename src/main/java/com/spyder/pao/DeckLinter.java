@@ -0,0 +1,227 @@
+package com.spyder.pao;
+
+import com.spyder.pao.model.EntryType;
+import com.spyder.pao.model.PaoEntry;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static com.spyder.pao.ConsoleColors.*;
+
+/**
+ * Checks deck data for problems the quizzes won't complain about: the same value on two entries, values on different
+ * entries close enough that {@link AnswerMatcher} accepts one for the other, and malformed alternate lists.
+ * <p>
+ * Values are compared by their {@link AnswerNormalizer} canonical form, as the quizzes do. Near duplicate checks compare
+ * values of the same entry type, only against candidates found through a single character deletion index of their
+ * words, and run in parallel on a fork-join pool.
+ */
+public class DeckLinter {
+
+    private static final List<EntryType> CHECKED_TYPES = Arrays.asList(EntryType.PERSON, EntryType.ACTION, EntryType.OBJECT);
+    private static final String ALT_DELIMITER = ",";
+    // Values per fork-join leaf task
+    private static final int BATCH_SIZE = 64;
+
+    public static List<Finding> lint(List<PaoEntry> entries) {
+        List<Finding> findings = new ArrayList<>();
+        for (PaoEntry entry : entries) {
+            findMalformed(entry, findings);
+        }
+        for (EntryType entryType : CHECKED_TYPES) {
+            List<Value> values = new ArrayList<>();
+            for (PaoEntry entry : entries) {
+                for (String value : entry.getAllByType(entryType)) {
+                    if (!value.isBlank()) {
+                        List<String> words = AnswerNormalizer.getDefault().normalizeWords(value);
+                        values.add(new Value(entry.getNumberStr(), value.trim(), String.join(" ", words), words.stream().map(DeckLinter::deletionKeys).toList()));
+                    }
+                }
+            }
+            findDuplicates(entryType, values, findings);
+            findNearDuplicates(entryType, values, findings);
+        }
+        return findings;
+    }
+
+    /**
+     * Prints the findings, returns how many there were.
+     */
+    public static int printFindings(List<Finding> findings) {
+        findings.forEach(finding -> System.out.println(color(YELLOW, "[" + finding.kind() + "] ") + finding.message()));
+        if (findings.isEmpty()) {
+            System.out.println("✓ No lint findings");
+        }
+        return findings.size();
+    }
+
+    private static void findMalformed(PaoEntry entry, List<Finding> findings) {
+        String number = entry.getNumberStr();
+        if (!number.matches("\\d+")) {
+            findings.add(new Finding(Kind.MALFORMED, "entry '" + number + "' number is not numeric"));
+        }
+        checkAlternates(number, EntryType.NUMBER, entry.getNumberStr(), entry.getAltNumbersStr(), findings);
+        checkAlternates(number, EntryType.PERSON, entry.getPerson(), entry.getAltPeopleStr(), findings);
+        checkAlternates(number, EntryType.ACTION, entry.getAction(), entry.getAltActionsStr(), findings);
+        checkAlternates(number, EntryType.OBJECT, entry.getObject(), entry.getAltObjectsStr(), findings);
+    }
+
+    private static void checkAlternates(String number, EntryType entryType, String primary, String alternates, List<Finding> findings) {
+        if (primary.isBlank()) {
+            findings.add(new Finding(Kind.MALFORMED, number + " " + entryType + " is empty"));
+        }
+        if (alternates.isBlank()) {
+            return;
+        }
+        Set<String> seen = new HashSet<>();
+        seen.add(primary.trim());
+        for (String alternate : alternates.split(ALT_DELIMITER, -1)) {
+            String value = alternate.trim();
+            if (value.isEmpty()) {
+                findings.add(new Finding(Kind.MALFORMED, number + " " + entryType + " alternates '" + alternates + "' have an empty value"));
+            } else if (!seen.add(value)) {
+                findings.add(new Finding(Kind.MALFORMED, number + " " + entryType + " alternate '" + value + "' is listed twice"));
+            } else if (value.contains("  ")) {
+                findings.add(new Finding(Kind.MALFORMED, number + " " + entryType + " alternate '" + value + "' has repeated spaces"));
+            } else if (entryType == EntryType.NUMBER && !value.matches("\\d+")) {
+                findings.add(new Finding(Kind.MALFORMED, number + " alternate number '" + value + "' is not numeric"));
+            }
+        }
+    }
+
+    private static void findDuplicates(EntryType entryType, List<Value> values, List<Finding> findings) {
+        Map<String, Set<String>> numbersByValue = new LinkedHashMap<>();
+        Map<String, Set<String>> textsByValue = new HashMap<>();
+        for (Value value : values) {
+            numbersByValue.computeIfAbsent(value.canonical(), k -> new TreeSet<>()).add(value.number());
+            textsByValue.computeIfAbsent(value.canonical(), k -> new LinkedHashSet<>()).add("'" + value.text() + "'");
+        }
+        numbersByValue.forEach((canonical, numbers) -> {
+            if (numbers.size() > 1) {
+                findings.add(new Finding(Kind.DUPLICATE, entryType + " " + String.join(" / ", textsByValue.get(canonical)) + " is used by " + String.join(", ", numbers)));
+            }
+        });
+    }
+
+    private static void findNearDuplicates(EntryType entryType, List<Value> values, List<Finding> findings) {
+        Map<String, List<Integer>> valuesByKey = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            for (Set<String> keys : values.get(i).wordKeys()) {
+                for (String key : keys) {
+                    List<Integer> keyValues = valuesByKey.computeIfAbsent(key, k -> new ArrayList<>());
+                    if (keyValues.isEmpty() || keyValues.getLast() != i) {
+                        keyValues.add(i);
+                    }
+                }
+            }
+        }
+        Set<Long> pairs = ConcurrentHashMap.newKeySet();
+        ForkJoinPool.commonPool().invoke(new NearDuplicateTask(values, valuesByKey, 0, values.size(), pairs));
+        pairs.stream()
+                .map(pair -> new Value[]{values.get((int) (pair >>> 32)), values.get((int) (long) pair)})
+                .sorted(Comparator.comparing((Value[] pair) -> pair[0]).thenComparing(pair -> pair[1]))
+                .forEach(pair -> findings.add(new Finding(Kind.NEAR_DUPLICATE, entryType + " " + pair[0].number() + " '" + pair[0].text()
+                        + "' is close enough to " + pair[1].number() + " '" + pair[1].text() + "'")));
+    }
+
+    /**
+     * The word and the word with each single character removed. Two words within edit distance 1 always share a key,
+     * so looking up these keys finds every close enough word without comparing against all of them.
+     */
+    private static Set<String> deletionKeys(String word) {
+        Set<String> keys = new HashSet<>();
+        keys.add(word);
+        for (int i = 0; i < word.length(); i++) {
+            keys.add(word.substring(0, i) + word.substring(i + 1));
+        }
+        return keys;
+    }
+
+    private static class NearDuplicateTask extends RecursiveAction {
+        private final List<Value> values;
+        private final Map<String, List<Integer>> valuesByKey;
+        private final int from;
+        private final int to;
+        private final Set<Long> pairs;
+
+        NearDuplicateTask(List<Value> values, Map<String, List<Integer>> valuesByKey, int from, int to, Set<Long> pairs) {
+            this.values = values;
+            this.valuesByKey = valuesByKey;
+            this.from = from;
+            this.to = to;
+            this.pairs = pairs;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH_SIZE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new NearDuplicateTask(values, valuesByKey, from, mid, pairs),
+                        new NearDuplicateTask(values, valuesByKey, mid, to, pairs));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                Value value = values.get(i);
+                for (int candidate : candidates(value)) {
+                    Value other = values.get(candidate);
+                    if (!value.number().equals(other.number())
+                            && !value.canonical().equals(other.canonical())
+                            && AnswerMatcher.isCloseEnough(value.canonical(), List.of(other.canonical()))) {
+                        pairs.add(value.compareTo(other) < 0 ? pair(i, candidate) : pair(candidate, i));
+                    }
+                }
+            }
+        }
+
+        /**
+         * The matcher allows at most one wrong word, so of any 2 words in the value at least one must be close to a word
+         * of a matching value. Only values sharing a key with the 2 rarest words are candidates.
+         */
+        private Set<Integer> candidates(Value value) {
+            List<Set<String>> wordKeys = new ArrayList<>(value.wordKeys());
+            wordKeys.sort(Comparator.comparingInt(this::candidateCount));
+            Set<Integer> candidates = new HashSet<>();
+            for (Set<String> keys : wordKeys.subList(0, Math.min(2, wordKeys.size()))) {
+                for (String key : keys) {
+                    candidates.addAll(valuesByKey.getOrDefault(key, Collections.emptyList()));
+                }
+            }
+            return candidates;
+        }
+
+        private int candidateCount(Set<String> keys) {
+            int count = 0;
+            for (String key : keys) {
+                count += valuesByKey.getOrDefault(key, Collections.emptyList()).size();
+            }
+            return count;
+        }
+
+        private static long pair(int first, int second) {
+            return ((long) first << 32) | second;
+        }
+    }
+
+    /**
+     * @param text      the value as written in the deck
+     * @param canonical the normalized value that answers are compared against
+     * @param wordKeys  {@link #deletionKeys(String)} of each canonical word
+     */
+    private record Value(String number, String text, String canonical, List<Set<String>> wordKeys) implements Comparable<Value> {
+
+        @Override
+        public int compareTo(Value other) {
+            int byNumber = number.compareTo(other.number);
+            return byNumber != 0 ? byNumber : text.compareTo(other.text);
+        }
+    }
+
+    public enum Kind {
+        DUPLICATE, NEAR_DUPLICATE, MALFORMED
+    }
+
+    public record Finding(Kind kind, String message) {
+    }
+}
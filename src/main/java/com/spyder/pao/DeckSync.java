@@ -0,0 +1,100 @@
+package com.spyder.pao;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Refreshes the deck on a virtual thread while the CLI is already taking commands. The fetched data is formatted and
+ * compared with the deck the CLI loaded, and only if it changed is the data file replaced and a new {@link DataSource}
+ * loaded from it, for the CLI to pick up with {@link #takeUpdate()} between commands.
+ * <p>
+ * Nothing here prints or blocks the caller, a failure or timeout is kept for the CLI to report with
+ * {@link #takeFailure()}.
+ */
+public class DeckSync {
+
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    private final DeckFetcher fetcher;
+    private final Path dataFile;
+    private final DataSource loaded;
+    private final AtomicReference<DataSource> update = new AtomicReference<>();
+    private final AtomicReference<String> failure = new AtomicReference<>();
+    // Set once the sync has timed out, so a late finish doesn't replace the data file
+    private volatile boolean abandoned;
+
+    /**
+     * @param loaded the deck the CLI is using, only read from the sync's thread
+     */
+    public DeckSync(DeckFetcher fetcher, Path dataFile, DataSource loaded) {
+        this.fetcher = fetcher;
+        this.dataFile = dataFile;
+        this.loaded = loaded;
+    }
+
+    public void start(Duration timeout) {
+        Thread.ofVirtual().name("deck-sync").start(() -> {
+            Thread sync = Thread.ofVirtual().name("deck-sync-fetch").start(this::sync);
+            try {
+                if (!sync.join(timeout)) {
+                    abandoned = true;
+                    sync.interrupt();
+                    failure.set("timed out after " + timeout.toSeconds() + "s");
+                }
+            } catch (InterruptedException e) {
+                abandoned = true;
+                sync.interrupt();
+            }
+        });
+    }
+
+    private void sync() {
+        Path syncFile = dataFile.resolveSibling(dataFile.getFileName() + ".sync");
+        try {
+            String formatted = DataFormatter.formatData(fetcher.fetch());
+            // Not the data file, which a previous sync may have updated after this deck was loaded
+            if (formatted.equals(DataFormatter.formatEntries(loaded.getEntries()))) {
+                return;
+            }
+            // Loaded from a separate file first, so data that doesn't load never replaces the working file
+            Files.writeString(syncFile, formatted);
+            DataSource synced = DataSource.createAndLoad(syncFile);
+            if (abandoned) {
+                Files.deleteIfExists(syncFile);
+                return;
+            }
+            Files.move(syncFile, dataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            update.set(synced);
+        } catch (Exception e) {
+            if (!abandoned) {
+                failure.set(e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : ""));
+            }
+            try {
+                Files.deleteIfExists(syncFile);
+            } catch (Exception ignored) {
+                // Left behind, overwritten by the next sync
+            }
+        }
+    }
+
+    /**
+     * @return the newly synced deck, once, or null if there is none (yet)
+     */
+    public DataSource takeUpdate() {
+        return update.getAndSet(null);
+    }
+
+    /**
+     * @return why the sync failed, once, or null if it hasn't failed
+     */
+    public String takeFailure() {
+        return failure.getAndSet(null);
+    }
+
+    public String describe() {
+        return fetcher.describe();
+    }
+}
@@ -0,0 +1,27 @@
+package com.spyder.pao;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads deck data from a local file, a stand-in for {@link GoogleSheetsDataFetcher} that works offline and in tests.
+ */
+public class FileDeckFetcher implements DeckFetcher {
+
+    private final Path file;
+
+    public FileDeckFetcher(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public String fetch() throws IOException {
+        return Files.readString(file);
+    }
+
+    @Override
+    public String describe() {
+        return file.toString();
+    }
+}
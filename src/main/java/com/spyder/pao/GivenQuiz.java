@@ -1,106 +1,200 @@
 package com.spyder.pao;
 
+import com.spyder.pao.events.*;
+import com.spyder.pao.jfr.AnswerValidationEvent;
 import com.spyder.pao.model.*;
 
 import java.util.*;
-
-import static com.spyder.pao.ConsoleColors.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class GivenQuiz {
 
+    private static final Pattern LEADING_NUMBER = Pattern.compile("\\d+ ");
     private final List<EntryType> RANDOM_ENTRY_TYPES = Arrays.asList(EntryType.PERSON, EntryType.ACTION, EntryType.OBJECT);
     private final Random random;
-    private final Scanner stdInScanner;
+    private final ConsoleInput stdIn;
+    // Totals across every quiz this run, each session's statistics add to it
+    private final QuizStatistics totals;
+    private final QuizEventBus.Backpressure backpressure;
+    private final boolean recordHistory;
 
-    public GivenQuiz(Scanner stdInScanner) {
+    /**
+     * @param recordHistory whether answers go to the history files, which reports and "select missed" read
+     */
+    public GivenQuiz(ConsoleInput stdIn, QuizStatistics totals, QuizEventBus.Backpressure backpressure, boolean recordHistory) {
         this.random = new Random();
-        this.stdInScanner = stdInScanner;
+        this.stdIn = stdIn;
+        this.totals = totals;
+        this.backpressure = backpressure;
+        this.recordHistory = recordHistory;
     }
 
-    public void beginQuiz(QuizConfiguration config, DataSource ds, int timerMinutes) {
-        if (config.getMaxEntry() - config.getMinEntry() < 1) {
-            System.out.println("Invalid min / max");
-            return;
-        }
+    /**
+     * @param drillSeconds per-question speed drill limit, 0 for none
+     * @return false if EXIT was entered, so the program should stop
+     */
+    public boolean beginQuiz(QuizConfiguration config, DataSource ds, int timerMinutes, int drillSeconds) {
         List<PaoEntry> entries = ds.getEntries(config);
 
         if (entries.isEmpty()) {
-            System.out.println("No entries in range " + config.getMinEntry() + ".." + config.getMaxEntry());
-            return;
+            System.out.println("No entries in selection " + config.describeSelection());
+            return true;
         }
-        Collections.shuffle(entries);
+        QuestionScheduler scheduler = QuestionScheduler.create(config.getOrder(), entries.size(), random);
         System.out.println();
-        int questionsAskedInCurrentSet = 0;
 
-        QuizStatistics stats = new QuizStatistics();
+        QuizStatistics stats = new QuizStatistics(totals);
         if (timerMinutes > 0) {
-            stats.startTimer();
+            stats.startTimer(timerMinutes);
             System.out.println("Timer started: " + timerMinutes + " minute" + (timerMinutes == 1 ? "" : "s"));
         }
+        if (drillSeconds > 0) {
+            System.out.println("Speed drill: " + drillSeconds + " second" + (drillSeconds == 1 ? "" : "s") + " per question");
+        }
 
+        ConsoleRenderer renderer = new ConsoleRenderer();
+        List<QuizObserver> observers = new ArrayList<>(List.of(renderer, new StatisticsObserver(stats), new MetricsObserver()));
+        if (recordHistory) {
+            observers.add(new HistoryObserver(SessionHistory.open()));
+        }
+        // Printing and recording happen on the observers' threads, this loop only publishes what happened
+        try (QuizEventBus bus = new QuizEventBus(QuizEventBus.DEFAULT_CAPACITY, backpressure, observers)) {
+            while (true) {
+                EntryType questionGivenEntryType = config.getGivenEntryType();
+                EntryType questionAnswerEntryType = config.getAnswerEntryType();
+                if (questionGivenEntryType == EntryType.RANDOM) {
+                    questionGivenEntryType = getRandomEntryType(null);
+                }
+                if (questionAnswerEntryType == EntryType.RANDOM) {
+                    questionAnswerEntryType = getRandomEntryType(questionGivenEntryType);
+                }
 
-        while (true) {
-            questionsAskedInCurrentSet = questionsAskedInCurrentSet % entries.size();
-            if (questionsAskedInCurrentSet == 0) {
-                Collections.shuffle(entries);
-            }
-
-            EntryType questionGivenEntryType = config.getGivenEntryType();
-            EntryType questionAnswerEntryType = config.getAnswerEntryType();
-            if (questionGivenEntryType == EntryType.RANDOM) {
-                questionGivenEntryType = getRandomEntryType(null);
-            }
-            if (questionAnswerEntryType == EntryType.RANDOM) {
-                questionAnswerEntryType = getRandomEntryType(questionGivenEntryType);
-            }
+                int entryIndex = scheduler.next();
+                PaoEntry entry = entries.get(entryIndex);
+                String t1Value = entry.getValue(questionAnswerEntryType);
+                bus.publish(claim(bus, QuizEvent.Kind.QUESTION, entry, questionGivenEntryType, questionAnswerEntryType));
+                PrefixTrie completions = ds.getCompletionTrie(questionAnswerEntryType);
+                stdIn.setCompleter(text -> completeAnswer(completions, text));
+                // From when the prompt is on screen, which the renderer's thread may be a little behind publishing
+                long promptNanos = renderer.awaitPrompt();
+                long deadline = stats.answerDeadlineNanos(promptNanos, drillSeconds);
+                ConsoleInput.Line line = stdIn.nextLine(deadline);
+                // Each hint reveals one more word of the answer and asks again, the clock keeps running
+                int hintsShown = 0;
+                while (line != null && Command.getCommand(line.text()) == Command.HINT) {
+                    hintsShown++;
+                    QuizEvent hintEvent = claim(bus, QuizEvent.Kind.HINT, entry, questionGivenEntryType, questionAnswerEntryType);
+                    hintEvent.hint = hint(t1Value, hintsShown);
+                    bus.publish(hintEvent);
+                    line = stdIn.nextLine(deadline);
+                }
+                stdIn.setCompleter(null);
+                if (line == null) {
+                    if (stats.hasTimerExpired()) {
+                        bus.awaitDrained();
+                        System.out.println();
+                        stats.printSummary();
+                        return true;
+                    }
+                    QuizEvent timeout = claim(bus, QuizEvent.Kind.TIMEOUT, entry, questionGivenEntryType, questionAnswerEntryType);
+                    timeout.latencyNanos = System.nanoTime() - promptNanos;
+                    bus.publish(timeout);
+                    scheduler.recordResult(entryIndex, false);
+                    if (!awaitContinue(bus, stats)) {
+                        return true;
+                    }
+                    continue;
+                }
+                String answerText = line.text();
+
+                QuestionContext questionContext = new QuestionContext();
+                questionContext.setCorrectAnswer(entry.getValue(questionAnswerEntryType));
+                questionContext.setEntry(questionGivenEntryType, entry);
+                questionContext.setEntry(questionAnswerEntryType, entry);
+                questionContext.setUserAnswerText(answerText);
+                validateAnswer(questionContext, questionAnswerEntryType, ds.getAnswerAutomaton(questionAnswerEntryType));
+
+                // Handle if user types a quit command as an answer
+                Command command = Command.getCommand(answerText);
+                switch (command) {
+                    case QUIT -> {
+                        return true;
+                    }
+                    case EXIT -> {
+                        // The bus is closed on the way out, so the observers finish writing history first
+                        return false;
+                    }
+                    case null, default -> { }
+                }
 
-            PaoEntry entry = entries.get(questionsAskedInCurrentSet);
-            String t1Word = questionAnswerEntryType.name();
-            String t1Value = entry.getValue(questionAnswerEntryType);
-            String t2Word = questionGivenEntryType.name();
-            String t2Value = entry.getValue(questionGivenEntryType);
-            System.out.print(color(PURPLE, t1Word) + " for " + color(CYAN, t2Word + " " + t2Value) + ": ");
-            String answerText = stdInScanner.nextLine();
-
-            QuestionContext questionContext = new QuestionContext();
-            questionContext.setCorrectAnswer(entry.getValue(questionAnswerEntryType));
-            questionContext.setEntry(questionGivenEntryType, entry);
-            questionContext.setEntry(questionAnswerEntryType, entry);
-            questionContext.setUserAnswerText(answerText);
-            validateAnswer(questionContext, questionAnswerEntryType);
-
-            // Handle if user types a quit command as an answer
-            Command command = Command.getCommand(answerText);
-            switch (command) {
-                case QUIT -> {
-                    return;
+                scheduler.recordResult(entryIndex, questionContext.isCorrect());
+                QuizEvent answer = claim(bus, QuizEvent.Kind.ANSWER, entry, questionGivenEntryType, questionAnswerEntryType);
+                answer.correct = questionContext.isCorrect();
+                answer.exactlyCorrect = questionContext.isExactlyCorrect();
+                answer.hintsShown = hintsShown;
+                answer.latencyNanos = line.latencyNanos(promptNanos);
+                answer.recallNanos = line.recallNanos(promptNanos);
+                bus.publish(answer);
+
+                // Check if timer has expired
+                if (stats.hasTimerExpired()) {
+                    bus.awaitDrained();
+                    stats.printSummary();
+                    return true;
                 }
-                case EXIT -> System.exit(0);
-                case null, default -> { }
             }
+        }
+    }
 
-            // Record statistics
-            stats.recordAnswer(questionContext.isCorrect());
-
-            if (questionContext.isCorrect()) {
-                String extraText = questionContext.isExactlyCorrect() ? "" : (" " + color(CYAN, questionContext.getCorrectAnswer()));
-                System.out.println(color(GREEN, "Correct" + extraText));
-            } else {
-                System.out.printf(color(RED, "Wrong:   [%s] %s has %s ") + color(CYAN, t1Value) + "%n", entry.getNumberStr(), t2Value, t1Word);
-            }
+    private static QuizEvent claim(QuizEventBus bus, QuizEvent.Kind kind, PaoEntry entry, EntryType givenType, EntryType answerType) {
+        QuizEvent event = bus.claim(kind);
+        event.entry = entry;
+        event.givenType = givenType;
+        event.answerType = answerType;
+        return event;
+    }
 
-            // Check if timer has expired
-            if (stats.hasTimerExpired(timerMinutes)) {
-                stats.printSummary();
-                return;
-            }
+    /**
+     * After a speed drill timeout, waits for Enter so whatever was being typed isn't taken as the next answer.
+     *
+     * @return false if the session timer ran out while waiting
+     */
+    private boolean awaitContinue(QuizEventBus bus, QuizStatistics stats) {
+        if (stdIn.nextLine(stats.answerDeadlineNanos(System.nanoTime(), 0)) == null) {
+            bus.awaitDrained();
+            System.out.println();
+            stats.printSummary();
+            return false;
+        }
+        return true;
+    }
 
-            System.out.println(System.lineSeparator());
-            questionsAskedInCurrentSet++;
+    /**
+     * @return the first hintsShown words of the answer, with a trailing "..." if there are more
+     */
+    private static String hint(String answer, int hintsShown) {
+        String[] words = answer.split(" ");
+        if (hintsShown >= words.length) {
+            return answer;
         }
+        return String.join(" ", Arrays.copyOf(words, hintsShown)) + " ...";
     }
 
-    private void validateAnswer(QuestionContext questionContext, EntryType answerType) {
+    // Tab completion of the answer part of the text, after the optional leading entry number
+    private static String completeAnswer(PrefixTrie completions, String text) {
+        Matcher leadingNumber = LEADING_NUMBER.matcher(text);
+        int start = leadingNumber.lookingAt() ? leadingNumber.end() : 0;
+        return text.substring(0, start) + completions.complete(text.substring(start));
+    }
+
+    /**
+     * Grades the user's answer in the context, setting whether it is correct and exactly correct. Verdicts are pinned
+     * by GradingRegressionTest, run that after changing anything here.
+     */
+    static void validateAnswer(QuestionContext questionContext, EntryType answerType, AnswerAutomaton answers) {
+        AnswerValidationEvent event = new AnswerValidationEvent();
+        event.begin();
         String userInput = questionContext.getUserAnswerText();
         String[] userInputTokens = userInput.split(" ");
         
@@ -120,34 +214,25 @@ public class GivenQuiz {
             }
         }
         
-        // Validate the entity answer
-        List<String> answerList = questionContext.getEntry(answerType).getAllByType(answerType);
-        int bestCorrectWords = -1;
-        int wrongWords = 0;
-        String[] userAnswerTokens = answerTextForValidation.split(" ");
-        List<String> bestMatchedAnswer = Collections.emptyList();
-
-        for (String possibleAnswer : answerList) {
-            List<String> possibleAnswerTokens = Arrays.asList(possibleAnswer.split(" "));
-            int correctWords = 0;
-            for (String userAnswerToken : userAnswerTokens) {
-                boolean wordMatches = possibleAnswerTokens.stream()
-                        .anyMatch(possibleToken -> isWordCloseEnough(userAnswerToken, possibleToken));
-                correctWords += wordMatches ? 1 : 0;
-            }
-            int newWrongWords = Math.max(possibleAnswerTokens.size(), userAnswerTokens.length) - correctWords;
-            if (correctWords > bestCorrectWords || (correctWords == bestCorrectWords && newWrongWords < wrongWords)) {
-                bestCorrectWords = correctWords;
-                wrongWords = Math.max(possibleAnswerTokens.size(), userAnswerTokens.length) - correctWords;
-                bestMatchedAnswer = possibleAnswerTokens;
-            }
-        }
-        // Allow one word wrong if the answer is longer, probably got the gist of it
-        int allowedWordsWrong = bestMatchedAnswer.size() > 2 ? 1 : 0;
-
-        boolean entityCorrect = wrongWords <= allowedWordsWrong;
+        // Validate the entity answer, both sides normalized so wording like "the" or "runs" vs "running" doesn't matter
+        PaoEntry entry = questionContext.getEntry(answerType);
+        List<String> answerList = entry.getAllByType(answerType);
+        List<String> answerWords = AnswerNormalizer.getDefault().normalizeWords(answerTextForValidation);
+        List<String> canonicalForms = answers.getCanonicalForms(entry.getNumberStr());
+        boolean entityCorrect = answers.accepts(entry.getNumberStr(), answerWords)
+                || AnswerMatcher.isCloseEnough(String.join(" ", answerWords), canonicalForms);
         questionContext.setCorrect(numberCorrect && entityCorrect);
         questionContext.setExactlyCorrect(answerTextForValidation.equalsIgnoreCase(answerList.getFirst()));
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.answerType = answerType.name();
+            event.alternates = canonicalForms.size();
+            event.answerTokens = answerWords.size();
+            event.possibleAnswerTokens = canonicalForms.stream().mapToInt(answer -> answer.split(" ").length).sum();
+            event.correct = questionContext.isCorrect();
+            event.commit();
+        }
     }
 
     private EntryType getRandomEntryType(EntryType excludingType) {
@@ -158,62 +243,4 @@ public class GivenQuiz {
         return entries.get(random.nextInt(entries.size()));
     }
 
-    /**
-     * Checks if two words are close enough to be considered a match.
-     * Returns true if words are exactly equal (case-insensitive) or have an edit distance of 1.
-     * Edit distance of 1 means: one character added, removed, or substituted.
-     */
-    private boolean isWordCloseEnough(String userWord, String targetWord) {
-        String user = userWord.toLowerCase();
-        String target = targetWord.toLowerCase();
-
-        // Exact match
-        if (user.equals(target)) {
-            return true;
-        }
-
-        int lenDiff = Math.abs(user.length() - target.length());
-
-        // Edit distance can't be 1 if length difference is > 1
-        if (lenDiff > 1) {
-            return false;
-        }
-
-        // Check for edit distance of 1
-        if (lenDiff == 0) {
-            // Same length - check for one substitution
-            int differences = 0;
-            for (int i = 0; i < user.length(); i++) {
-                if (user.charAt(i) != target.charAt(i)) {
-                    differences++;
-                    if (differences > 1) {
-                        return false;
-                    }
-                }
-            }
-            return differences == 1;
-        } else {
-            // Length differs by 1 - check for one insertion/deletion
-            String shorter = user.length() < target.length() ? user : target;
-            String longer = user.length() < target.length() ? target : user;
-
-            int i = 0, j = 0;
-            boolean foundDifference = false;
-
-            while (i < shorter.length() && j < longer.length()) {
-                if (shorter.charAt(i) != longer.charAt(j)) {
-                    if (foundDifference) {
-                        return false;
-                    }
-                    foundDifference = true;
-                    j++; // Skip character in longer string
-                } else {
-                    i++;
-                    j++;
-                }
-            }
-            return true;
-        }
-    }
-
 }
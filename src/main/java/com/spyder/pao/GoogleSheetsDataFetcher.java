@@ -1,84 +1,296 @@
 package com.spyder.pao;
 
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.sheets.v4.Sheets;
 import com.google.api.services.sheets.v4.SheetsScopes;
+import com.google.api.services.sheets.v4.model.BatchGetValuesResponse;
 import com.google.api.services.sheets.v4.model.ValueRange;
 import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.auth.oauth2.GoogleCredentials;
+import com.spyder.pao.SheetsConfig.SheetsDeck;
+import com.spyder.pao.jfr.SheetsSyncEvent;
+import com.spyder.pao.model.PaoEntry;
 import lombok.SneakyThrows;
 
 import java.io.FileInputStream;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 
-public class GoogleSheetsDataFetcher {
+/**
+ * Fetches decks from Google Sheets. Decks are grouped by spreadsheet and each spreadsheet's ranges are read in one
+ * batchGet request, with the spreadsheets fetched in parallel on a transport shared by every fetcher. Requests that fail
+ * with a network error, a rate limit or a server error are retried a few times with backoff.
+ * <p>
+ * The root URL can point somewhere other than Google, ie a local stand-in for the Sheets API, in which case requests
+ * are only authenticated if there is a credentials file.
+ */
+public class GoogleSheetsDataFetcher implements DeckFetcher {
+
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+
+    // Building a transport loads the trust store, so it is done once and shared
+    private static HttpTransport transport;
+
+    private final String rootUrl;
+    private final List<SheetsDeck> decks;
+    // Waits between attempts, swapped out by tests
+    private final Sleeper sleeper;
+    private Sheets service;
+
+    public GoogleSheetsDataFetcher() {
+        this(SheetsConfig.ROOT_URL, SheetsConfig.DECKS);
+    }
+
+    /**
+     * @param rootUrl where the Sheets API is, ending with /
+     * @param decks   decks to fetch, the first is the one {@link #fetch()} returns
+     */
+    public GoogleSheetsDataFetcher(String rootUrl, List<SheetsDeck> decks) {
+        this(rootUrl, decks, Thread::sleep);
+    }
+
+    GoogleSheetsDataFetcher(String rootUrl, List<SheetsDeck> decks, Sleeper sleeper) {
+        this.rootUrl = rootUrl.endsWith("/") ? rootUrl : rootUrl + "/";
+        this.decks = decks;
+        this.sleeper = sleeper;
+    }
 
     public static void main(String[] args) {
-        refreshData();
+        GoogleSheetsDataFetcher fetcher = args.length > 0
+                ? new GoogleSheetsDataFetcher(args[0], SheetsConfig.DECKS)
+                : new GoogleSheetsDataFetcher();
+        refreshData(fetcher);
         System.out.println("✓ Data refresh completed successfully!");
     }
 
-    private static void refreshData() {
-        // Authenticate and build Sheets service
-        Sheets sheetsService = getSheetsService();
+    @SneakyThrows
+    private static void refreshData(GoogleSheetsDataFetcher fetcher) {
+        Map<SheetsDeck, String> rawData = fetcher.fetchAll();
+        System.out.println("✓ Fetched " + rawData.size() + " decks from " + fetcher.describe());
 
-        // Fetch data from Google Sheets
-        String rawData = fetchDataFromSheet(sheetsService, SheetsConfig.SPREADSHEET_ID, SheetsConfig.CELL_RANGE);
+        // Format, write and lint each deck on its own thread, then report them in order
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Map<SheetsDeck, Future<List<DeckLinter.Finding>>> writes = new LinkedHashMap<>();
+            rawData.forEach((deck, data) -> writes.put(deck, executor.submit(() -> writeDeck(deck, data))));
+            for (Map.Entry<SheetsDeck, Future<List<DeckLinter.Finding>>> write : writes.entrySet()) {
+                List<DeckLinter.Finding> findings = write.getValue().get();
+                System.out.println("✓ Wrote " + write.getKey().name() + " deck to " + write.getKey().filePath());
+                DeckLinter.printFindings(findings);
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
 
-        System.out.println("✓ Fetched data from Google Sheets");
+    /**
+     * @return lint findings of the deck written
+     */
+    private static List<DeckLinter.Finding> writeDeck(SheetsDeck deck, String rawData) throws IOException {
+        List<PaoEntry> entries = DataFormatter.parseData(rawData);
+        SheetsSyncEvent writeEvent = startStep("write", deck.range());
+        Files.writeString(Path.of(deck.filePath()), DataFormatter.formatEntries(entries));
+        writeEvent.commit();
+        return DeckLinter.lint(entries);
+    }
 
-        // Write raw data to file
-        writeRawDataToFile(rawData, SheetsConfig.DATA_FILE_PATH);
-        System.out.println("✓ Wrote raw data to " + SheetsConfig.DATA_FILE_PATH);
+    /**
+     * @return the first deck's raw data
+     */
+    @Override
+    public String fetch() throws IOException {
+        SheetsDeck deck = decks.getFirst();
+        return fetch(List.of(deck)).get(deck);
+    }
 
-        // Format the data
-        DataFormatter.formatDataFile(SheetsConfig.DATA_FILE_PATH);
+    /**
+     * @return raw data of every deck, in the order they were configured
+     */
+    public Map<SheetsDeck, String> fetchAll() throws IOException {
+        return fetch(decks);
     }
 
-    @SneakyThrows
-    private static Sheets getSheetsService() {
-        // Load service account credentials
-        FileInputStream credentialsStream = new FileInputStream(SheetsConfig.CREDENTIALS_FILE_PATH);
+    @Override
+    public String describe() {
+        return SheetsConfig.ROOT_URL.equals(rootUrl) ? "Google Sheets" : rootUrl;
+    }
 
-        GoogleCredentials credentials = GoogleCredentials
-                .fromStream(credentialsStream)
-                .createScoped(Collections.singletonList(SheetsScopes.SPREADSHEETS_READONLY));
+    private Map<SheetsDeck, String> fetch(List<SheetsDeck> toFetch) throws IOException {
+        Sheets sheets = getSheetsService();
+        Map<String, List<SheetsDeck>> bySpreadsheet = toFetch.stream()
+                .collect(Collectors.groupingBy(SheetsDeck::spreadsheetId, LinkedHashMap::new, Collectors.toList()));
 
-        // Build the Sheets service
-        HttpCredentialsAdapter credentialsAdapter = new HttpCredentialsAdapter(credentials);
+        Map<SheetsDeck, String> rawData = new LinkedHashMap<>();
+        if (bySpreadsheet.size() == 1) {
+            // Nothing to run in parallel
+            List<SheetsDeck> spreadsheetDecks = bySpreadsheet.values().iterator().next();
+            putAll(rawData, spreadsheetDecks, fetchSpreadsheet(sheets, spreadsheetDecks));
+        } else {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                Map<List<SheetsDeck>, Future<List<String>>> fetches = new LinkedHashMap<>();
+                for (List<SheetsDeck> spreadsheetDecks : bySpreadsheet.values()) {
+                    fetches.put(spreadsheetDecks, executor.submit(() -> fetchSpreadsheet(sheets, spreadsheetDecks)));
+                }
+                for (Map.Entry<List<SheetsDeck>, Future<List<String>>> fetch : fetches.entrySet()) {
+                    putAll(rawData, fetch.getKey(), fetch.getValue().get());
+                }
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while fetching decks");
+            }
+        }
+        // Back in configured order, the decks were fetched grouped by spreadsheet
+        Map<SheetsDeck, String> ordered = new LinkedHashMap<>();
+        for (SheetsDeck deck : toFetch) {
+            ordered.put(deck, rawData.get(deck));
+        }
+        return ordered;
+    }
 
-        return new Sheets.Builder(GoogleNetHttpTransport.newTrustedTransport(), GsonFactory.getDefaultInstance(), credentialsAdapter)
-                .setApplicationName(SheetsConfig.APPLICATION_NAME)
-                .build();
+    private static void putAll(Map<SheetsDeck, String> rawData, List<SheetsDeck> decks, List<String> values) {
+        for (int i = 0; i < decks.size(); i++) {
+            rawData.put(decks.get(i), values.get(i));
+        }
     }
 
-    @SneakyThrows
-    private static String fetchDataFromSheet(Sheets service, String spreadsheetId, String range) {
-        ValueRange response = service.spreadsheets().values().get(spreadsheetId, range).execute();
+    /**
+     * @param decks decks from the same spreadsheet
+     * @return each deck's cell, in the same order
+     */
+    private List<String> fetchSpreadsheet(Sheets service, List<SheetsDeck> decks) throws IOException {
+        List<String> ranges = decks.stream().map(SheetsDeck::range).toList();
+        SheetsSyncEvent fetchEvent = startStep("fetch", String.join(",", ranges));
+        BatchGetValuesResponse response = withRetries(() ->
+                service.spreadsheets().values().batchGet(decks.getFirst().spreadsheetId()).setRanges(ranges).execute());
+        fetchEvent.commit();
 
-        List<List<Object>> values = response.getValues();
+        List<ValueRange> valueRanges = response.getValueRanges();
+        if (valueRanges == null || valueRanges.size() != ranges.size()) {
+            throw new IOException("Expected " + ranges.size() + " ranges, got " + (valueRanges == null ? 0 : valueRanges.size()));
+        }
+        List<String> cells = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            cells.add(cellValue(ranges.get(i), valueRanges.get(i).getValues()));
+        }
+        return cells;
+    }
 
+    private static String cellValue(String range, List<List<Object>> values) throws IOException {
         if (values == null || values.isEmpty()) {
-            throw new RuntimeException("Cell " + range + " is empty");
+            throw new IOException("Cell " + range + " is empty");
         }
 
         if (values.size() != 1 || values.get(0).isEmpty()) {
-            throw new RuntimeException("Expected single cell with data, got: " + values.size() + " rows");
+            throw new IOException("Expected single cell with data in " + range + ", got: " + values.size() + " rows");
+        }
+
+        return values.get(0).get(0).toString();
+    }
+
+    private <T> T withRetries(SheetsRequest<T> request) throws IOException {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return request.execute();
+            } catch (IOException e) {
+                if (attempt == MAX_ATTEMPTS || !isRetryable(e)) {
+                    throw e;
+                }
+                try {
+                    // Jittered so parallel requests that failed together don't retry together
+                    sleeper.sleep(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to retry: " + e.getMessage());
+                }
+                backoff *= 2;
+            }
+        }
+    }
+
+    static boolean isRetryable(IOException e) {
+        if (e instanceof InterruptedIOException && Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+        // Including GoogleJsonResponseException, any other status is the request's fault and fails the same way again
+        if (e instanceof HttpResponseException response) {
+            int status = response.getStatusCode();
+            return status == 429 || status >= 500;
         }
+        // Connection refused, reset, timed out...
+        return true;
+    }
 
-        Object cellValue = values.get(0).get(0);
-        return cellValue.toString();
+    private static SheetsSyncEvent startStep(String step, String range) {
+        SheetsSyncEvent event = new SheetsSyncEvent();
+        event.step = step;
+        event.range = range;
+        event.begin();
+        return event;
     }
 
-    private static void writeRawDataToFile(String data, String filePath) {
-        try (FileWriter writer = new FileWriter(filePath)) {
-            writer.write(data);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    private synchronized Sheets getSheetsService() throws IOException {
+        if (service == null) {
+            SheetsSyncEvent authEvent = startStep("auth", rootUrl);
+            service = new Sheets.Builder(getTransport(), GsonFactory.getDefaultInstance(), getRequestInitializer())
+                    .setRootUrl(rootUrl)
+                    .setApplicationName(SheetsConfig.APPLICATION_NAME)
+                    .build();
+            authEvent.commit();
         }
+        return service;
+    }
+
+    @SneakyThrows
+    private static synchronized HttpTransport getTransport() {
+        if (transport == null) {
+            transport = GoogleNetHttpTransport.newTrustedTransport();
+        }
+        return transport;
+    }
+
+    private HttpRequestInitializer getRequestInitializer() throws IOException {
+        Path credentialsPath = Path.of(SheetsConfig.CREDENTIALS_FILE_PATH);
+        if (!SheetsConfig.ROOT_URL.equals(rootUrl) && !Files.exists(credentialsPath)) {
+            // A local stand-in, no credentials needed
+            return request -> {
+            };
+        }
+        // Load service account credentials
+        try (FileInputStream credentialsStream = new FileInputStream(credentialsPath.toFile())) {
+            GoogleCredentials credentials = GoogleCredentials
+                    .fromStream(credentialsStream)
+                    .createScoped(Collections.singletonList(SheetsScopes.SPREADSHEETS_READONLY));
+            return new HttpCredentialsAdapter(credentials);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SheetsRequest<T> {
+        T execute() throws IOException;
+    }
+
+    @FunctionalInterface
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
     }
 }
@@ -0,0 +1,216 @@
+package com.spyder.pao;
+
+import com.spyder.pao.model.QuestionOrder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Monte Carlo comparison of the {@link QuestionOrder}s. Synthetic learners with a forgetting curve per entry are quizzed
+ * by each order's {@link QuestionScheduler} until they have mastered every entry, then left alone for a while to see how
+ * much they retain.
+ * <p>
+ * A learner recalls an entry with probability e^(-t/s), t questions after last seeing it, with s the entry's stability.
+ * An entry never seen can't be recalled. Each answer, right or wrong, shows the correct answer: a right answer
+ * multiplies stability by the learner's growth factor, a miss resets it. Learner parameters and per-entry difficulty
+ * are random, but each learner is run through every order with the same ones so the orders are compared fairly.
+ * <p>
+ * Learners are simulated in parallel on a fork-join pool. Every learner's random numbers come from the seed and its own
+ * index, so a seed always gives the same results however the work is split.
+ */
+public class LearnerSimulator {
+
+    public static final int DEFAULT_LEARNERS = 10_000;
+    // Right answers in a row that count an entry as mastered
+    private static final int MASTERY_STREAK = 3;
+    // Questions without mastering the deck, per entry, before a learner is given up on
+    private static final int MAX_QUESTIONS_PER_ENTRY = 100;
+    // Questions worth of time between mastering the deck and measuring retention
+    private static final int RETENTION_DELAY_PER_ENTRY = 20;
+    // Learners per fork-join leaf task
+    private static final int BATCH_SIZE = 64;
+
+    private final int entries;
+    private final int learners;
+    private final long seed;
+    private final QuestionOrder[] orders = QuestionOrder.values();
+
+    public LearnerSimulator(int entries, int learners, long seed) {
+        if (entries < 1 || learners < 1) {
+            throw new IllegalArgumentException("Need at least one entry and one learner");
+        }
+        this.entries = entries;
+        this.learners = learners;
+        this.seed = seed;
+    }
+
+    public Result run() {
+        // [order][learner], -1 for learners who never mastered the deck
+        int[][] questionsToMastery = new int[orders.length][learners];
+        double[][] retention = new double[orders.length][learners];
+        ForkJoinPool.commonPool().invoke(new LearnerTask(0, learners, questionsToMastery, retention));
+        OrderResult[] results = new OrderResult[orders.length];
+        for (int o = 0; o < orders.length; o++) {
+            results[o] = OrderResult.of(orders[o], questionsToMastery[o], retention[o]);
+        }
+        return new Result(entries, learners, seed, Arrays.asList(results));
+    }
+
+    private class LearnerTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final int[][] questionsToMastery;
+        private final double[][] retention;
+
+        LearnerTask(int from, int to, int[][] questionsToMastery, double[][] retention) {
+            this.from = from;
+            this.to = to;
+            this.questionsToMastery = questionsToMastery;
+            this.retention = retention;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH_SIZE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new LearnerTask(from, mid, questionsToMastery, retention),
+                        new LearnerTask(mid, to, questionsToMastery, retention));
+                return;
+            }
+            for (int learner = from; learner < to; learner++) {
+                // Seeded from the learner's index, not from whichever thread happens to run it
+                SplittableRandom learnerRandom = new SplittableRandom(seed ^ (learner * 0x9E3779B97F4A7C15L));
+                Learner profile = Learner.random(entries, learnerRandom);
+                for (int o = 0; o < orders.length; o++) {
+                    SplittableRandom random = learnerRandom.split();
+                    int questions = profile.learn(QuestionScheduler.create(orders[o], entries, random), random);
+                    questionsToMastery[o][learner] = questions;
+                    retention[o][learner] = profile.retention(questions);
+                }
+            }
+        }
+    }
+
+    /**
+     * One synthetic learner, reset at the start of each {@link #learn} run.
+     */
+    private static class Learner {
+        private final double initialStability;
+        private final double growth;
+        private final double[] difficulty;
+        private final double[] stability;
+        // Question number each entry was last shown at, -1 if never
+        private final long[] lastSeen;
+        private final int[] streak;
+
+        private Learner(double initialStability, double growth, double[] difficulty) {
+            this.initialStability = initialStability;
+            this.growth = growth;
+            this.difficulty = difficulty;
+            stability = new double[difficulty.length];
+            lastSeen = new long[difficulty.length];
+            streak = new int[difficulty.length];
+        }
+
+        static Learner random(int entries, SplittableRandom random) {
+            double[] difficulty = new double[entries];
+            for (int i = 0; i < entries; i++) {
+                // Log-normal, most entries about as hard as each other and a few much harder
+                difficulty[i] = Math.exp(random.nextGaussian() * 0.5);
+            }
+            // Stability after first seeing an answer, in questions. A question takes several seconds, so these are
+            // memories that fade over minutes until practiced.
+            return new Learner(random.nextDouble(30, 150), random.nextDouble(1.5, 3.5), difficulty);
+        }
+
+        /**
+         * @return questions asked until every entry was mastered at the same time, -1 if that never happened
+         */
+        int learn(QuestionScheduler scheduler, SplittableRandom random) {
+            Arrays.fill(lastSeen, -1);
+            Arrays.fill(streak, 0);
+            int mastered = 0;
+            int maxQuestions = MAX_QUESTIONS_PER_ENTRY * difficulty.length;
+            for (int question = 0; question < maxQuestions; question++) {
+                int entry = scheduler.next();
+                boolean correct = random.nextDouble() < recallProbability(entry, question);
+                scheduler.recordResult(entry, correct);
+                if (correct) {
+                    stability[entry] *= growth;
+                    if (++streak[entry] == MASTERY_STREAK) {
+                        mastered++;
+                    }
+                } else {
+                    stability[entry] = initialStability / difficulty[entry];
+                    if (streak[entry] >= MASTERY_STREAK) {
+                        mastered--;
+                    }
+                    streak[entry] = 0;
+                }
+                lastSeen[entry] = question;
+                if (mastered == difficulty.length) {
+                    return question + 1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return average chance of recalling an entry some time after the end of a {@link #learn} run
+         */
+        double retention(int questions) {
+            if (questions < 0) {
+                return 0;
+            }
+            long later = questions + (long) RETENTION_DELAY_PER_ENTRY * difficulty.length;
+            double total = 0;
+            for (int entry = 0; entry < difficulty.length; entry++) {
+                total += recallProbability(entry, later);
+            }
+            return total / difficulty.length;
+        }
+
+        private double recallProbability(int entry, long now) {
+            if (lastSeen[entry] < 0) {
+                return 0;
+            }
+            return Math.exp(-(now - lastSeen[entry]) / stability[entry]);
+        }
+    }
+
+    /**
+     * @param medianQuestions median of the learners who mastered the deck, -1 if none did
+     * @param p90Questions    90th percentile of the learners who mastered the deck, -1 if none did
+     * @param meanRetention   average recall chance per entry some time after mastering, 0 for learners who didn't
+     */
+    public record OrderResult(QuestionOrder order, int mastered, int learners, double meanQuestions, int medianQuestions,
+                              int p90Questions, double meanRetention) {
+
+        static OrderResult of(QuestionOrder order, int[] questionsToMastery, double[] retention) {
+            int[] mastered = Arrays.stream(questionsToMastery).filter(questions -> questions >= 0).sorted().toArray();
+            double meanQuestions = Arrays.stream(mastered).average().orElse(0);
+            int median = mastered.length == 0 ? -1 : mastered[mastered.length / 2];
+            int p90 = mastered.length == 0 ? -1 : mastered[(int) Math.min(mastered.length - 1, Math.ceil(mastered.length * 0.9) - 1)];
+            return new OrderResult(order, mastered.length, questionsToMastery.length, meanQuestions, median, p90,
+                    Arrays.stream(retention).average().orElse(0));
+        }
+    }
+
+    public record Result(int entries, int learners, long seed, List<OrderResult> orders) {
+
+        public void print() {
+            System.out.printf("%d simulated learners on %d entries, seed %d%n", learners, entries, seed);
+            System.out.printf("%-10s %9s %9s %7s %7s %10s%n", "order", "mastered", "mean Qs", "median", "p90", "retention");
+            for (OrderResult result : orders) {
+                System.out.printf("%-10s %8.1f%% %9.0f %7d %7d %9.1f%%%n", result.order(),
+                        100.0 * result.mastered() / result.learners(), result.meanQuestions(), result.medianQuestions(),
+                        result.p90Questions(), 100 * result.meanRetention());
+            }
+            System.out.println("Questions to mastery count until every entry has " + MASTERY_STREAK
+                    + " right answers in a row, retention is measured " + RETENTION_DELAY_PER_ENTRY + " questions per entry later");
+        }
+    }
+}
@@ -1,9 +1,54 @@
 package com.spyder.pao;
 
+import com.spyder.pao.events.QuizEventBus;
+import com.spyder.pao.jfr.FlightRecording;
+import lombok.SneakyThrows;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
 public class Main {
+    @SneakyThrows
     public static void main(String[] args) {
-        DataSource dataSource = DataSource.createAndLoad();
-        CLIRunner CLIRunner = new CLIRunner(dataSource);
-        CLIRunner.begin();
+        QuizEventBus.Backpressure backpressure = QuizEventBus.Backpressure.BLOCK;
+        // Commands to run instead of reading them from the keyboard, see CLIRunner.run()
+        ConsoleInput batchInput = null;
+        List<String> execLines = new ArrayList<>();
+        // Syncs from Google Sheets by default when there are credentials for it
+        DeckFetcher fetcher = Files.exists(Path.of(SheetsConfig.CREDENTIALS_FILE_PATH)) ? new GoogleSheetsDataFetcher() : null;
+        for (String arg : args) {
+            switch (arg) {
+                case "--jfr" -> FlightRecording.startDumpOnExit(Path.of(FlightRecording.DEFAULT_FILE));
+                case String jfr when jfr.startsWith("--jfr=") -> FlightRecording.startDumpOnExit(Path.of(jfr.substring("--jfr=".length())));
+                case "--backpressure=block" -> backpressure = QuizEventBus.Backpressure.BLOCK;
+                case "--backpressure=drop" -> backpressure = QuizEventBus.Backpressure.DROP;
+                case "--no-sync" -> fetcher = null;
+                case String file when file.startsWith("--sync-file=") -> fetcher = new FileDeckFetcher(Path.of(file.substring("--sync-file=".length())));
+                case String url when url.startsWith("--sheets-url=") -> fetcher = new GoogleSheetsDataFetcher(url.substring("--sheets-url=".length()), SheetsConfig.DECKS);
+                case "--batch" -> batchInput = new ConsoleInput(System.in);
+                case String file when file.startsWith("--batch=") -> batchInput = ConsoleInput.ofLines(Files.readAllLines(Path.of(file.substring("--batch=".length()))));
+                case String line when line.startsWith("--exec=") -> execLines.add(line.substring("--exec=".length()));
+                default -> System.out.println("[WARN] Unknown argument " + arg);
+            }
+        }
+        if (!execLines.isEmpty()) {
+            batchInput = ConsoleInput.ofLines(execLines);
+        }
+        // The data file is where syncs write, the classpath copy is only updated by a build
+        Path dataFile = Path.of(SheetsConfig.DECKS.getFirst().filePath());
+        DataSource dataSource = Files.exists(dataFile) ? DataSource.createAndLoad(dataFile) : DataSource.createAndLoad();
+        if (batchInput != null) {
+            // Runs against the deck as it is, a sync finishing part way through would change results
+            System.exit(new CLIRunner(dataSource, backpressure, null, batchInput, true).run());
+        }
+        DeckSync deckSync = null;
+        if (fetcher != null) {
+            deckSync = new DeckSync(fetcher, dataFile, dataSource);
+            deckSync.start(DeckSync.DEFAULT_TIMEOUT);
+        }
+        CLIRunner CLIRunner = new CLIRunner(dataSource, backpressure, deckSync);
+        System.exit(CLIRunner.run());
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.spyder.pao;
 
+import com.spyder.pao.jfr.QuestionRenderEvent;
 import com.spyder.pao.model.Command;
 import com.spyder.pao.model.PaoEntry;
 import com.spyder.pao.model.QuizConfiguration;
@@ -7,31 +8,47 @@ import com.spyder.pao.model.QuizStatistics;
 
 import java.util.List;
 import java.util.Random;
-import java.util.Scanner;
 
 import static com.spyder.pao.ConsoleColors.CYAN;
+import static com.spyder.pao.ConsoleColors.RED;
 import static com.spyder.pao.ConsoleColors.color;
 
 public class NumberQuiz {
 
     private final Random random;
-    private final Scanner stdInScanner;
+    private final ConsoleInput stdIn;
+    // Totals across every quiz this run, each session's statistics add to it
+    private final QuizStatistics totals;
 
-    public NumberQuiz(Scanner stdInScanner) {
+    public NumberQuiz(ConsoleInput stdIn, QuizStatistics totals) {
         random = new Random();
-        this.stdInScanner = stdInScanner;
+        this.stdIn = stdIn;
+        this.totals = totals;
     }
 
-    public void beginQuiz(QuizConfiguration config, DataSource ds, int timerMinutes) {
+    /**
+     * @param drillSeconds per-question speed drill limit, 0 for none
+     * @return false if EXIT was entered, so the program should stop
+     */
+    public boolean beginQuiz(QuizConfiguration config, DataSource ds, int timerMinutes, int drillSeconds) {
         List<PaoEntry> entries = ds.getEntries(config);
+        if (entries.isEmpty()) {
+            System.out.println("No entries in selection " + config.describeSelection());
+            return true;
+        }
 
-        QuizStatistics stats = new QuizStatistics();
+        QuizStatistics stats = new QuizStatistics(totals);
         if (timerMinutes > 0) {
-            stats.startTimer();
+            stats.startTimer(timerMinutes);
             System.out.println("Timer started: " + timerMinutes + " minute" + (timerMinutes == 1 ? "" : "s"));
         }
+        if (drillSeconds > 0) {
+            System.out.println("Speed drill: " + drillSeconds + " second" + (drillSeconds == 1 ? "" : "s") + " per question");
+        }
 
         while (true) {
+            QuestionRenderEvent renderEvent = new QuestionRenderEvent();
+            renderEvent.begin();
             PaoEntry person = entries.get(random.nextInt(entries.size()));
             PaoEntry action = entries.get(random.nextInt(entries.size()));
             PaoEntry object = entries.get(random.nextInt(entries.size()));
@@ -40,27 +57,50 @@ public class NumberQuiz {
             System.out.println();
             System.out.println("Picture for " + color(CYAN, number));
             System.out.print("> ");
-            String answerText = stdInScanner.nextLine();
+            renderEvent.quiz = "NUMBER";
+            renderEvent.commit();
+            long promptNanos = System.nanoTime();
+            ConsoleInput.Line line = stdIn.nextLine(stats.answerDeadlineNanos(promptNanos, drillSeconds));
+            if (line == null) {
+                System.out.println();
+                if (stats.hasTimerExpired()) {
+                    stats.printSummary();
+                    return true;
+                }
+                stats.recordTimeout(System.nanoTime() - promptNanos);
+                System.out.println(color(RED, "Too slow: ") + color(CYAN, fullAnswer));
+                // Swallow whatever was being typed when time ran out so it isn't taken as the next answer
+                System.out.print("Press Enter to continue");
+                if (stdIn.nextLine(stats.answerDeadlineNanos(System.nanoTime(), 0)) == null) {
+                    System.out.println();
+                    stats.printSummary();
+                    return true;
+                }
+                continue;
+            }
+            String answerText = line.text();
 
             // Handle if user types a quit command as an answer
             Command command = Command.getCommand(answerText);
             switch (command) {
                 case QUIT -> {
-                    return;
+                    return true;
+                }
+                case EXIT -> {
+                    return false;
                 }
-                case EXIT -> System.exit(0);
                 case null, default -> { }
             }
 
             System.out.println("Answer: " + color(CYAN, fullAnswer));
 
             // For NumberQuiz, we just increment total (no automated correct/wrong tracking)
-            stats.recordAnswer(false);
+            stats.recordAnswer(false, line.latencyNanos(promptNanos), line.recallNanos(promptNanos));
 
             // Check if timer has expired
-            if (stats.hasTimerExpired(timerMinutes)) {
+            if (stats.hasTimerExpired()) {
                 stats.printSummary();
-                return;
+                return true;
             }
         }
     }
@@ -0,0 +1,66 @@
+package com.spyder.pao;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import static com.spyder.pao.ConsoleColors.RESET;
+
+/**
+ * Writes lines to System.out through a buffer that is flushed a screenful at a time rather than per line. When input
+ * is from a terminal it stops after each screenful until Enter is pressed, or q to skip the rest.
+ */
+public class Pager implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ConsoleInput input;
+    private final PrintWriter out;
+    // 0 to never stop
+    private final int pageLines;
+    private int linesOnPage;
+    private boolean stopped;
+
+    public Pager(ConsoleInput input) {
+        this.input = input;
+        pageLines = input.pageLines();
+        out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), BUFFER_SIZE));
+    }
+
+    public Pager append(String text) {
+        out.write(text);
+        return this;
+    }
+
+    /**
+     * Appends the text in a {@link ConsoleColors} color, without building the colored string.
+     */
+    public Pager append(String color, String text) {
+        out.write(color);
+        out.write(text);
+        out.write(RESET);
+        return this;
+    }
+
+    /**
+     * Ends the current line, waiting for a key press if that filled the screen.
+     *
+     * @return false if the rest of the output was skipped, so there's no need to write more
+     */
+    public boolean endLine() {
+        out.println();
+        if (pageLines > 0 && ++linesOnPage == pageLines) {
+            linesOnPage = 0;
+            out.print("-- Enter for more, q to stop -- ");
+            out.flush();
+            stopped = input.nextLine().trim().equalsIgnoreCase("q");
+        }
+        return !stopped;
+    }
+
+    @Override
+    public void close() {
+        // System.out itself is left open
+        out.flush();
+    }
+}
@@ -0,0 +1,48 @@
+package com.spyder.pao;
+
+import com.spyder.pao.model.EntryType;
+import com.spyder.pao.model.PaoEntry;
+
+import java.util.*;
+
+/**
+ * Reverse lookup from a phrase (primary or alternate value) to the numbers of every entry that uses it.
+ * Built once per deck so resolving a phrase is a single hash lookup regardless of deck size. Phrases are keyed by their
+ * {@link AnswerNormalizer} canonical form, so any wording the quizzes accept resolves to the same entries.
+ */
+public class PhraseIndex {
+
+    private static final List<EntryType> INDEXED_TYPES = Arrays.asList(EntryType.PERSON, EntryType.ACTION, EntryType.OBJECT);
+
+    private final Map<EntryType, Map<String, List<String>>> numbersByPhrase = new EnumMap<>(EntryType.class);
+
+    public PhraseIndex(List<PaoEntry> entries) {
+        for (EntryType entryType : INDEXED_TYPES) {
+            Map<String, List<String>> phrases = new HashMap<>();
+            for (PaoEntry entry : entries) {
+                for (String phrase : entry.getAllByType(entryType)) {
+                    List<String> numbers = phrases.computeIfAbsent(normalize(phrase), k -> new ArrayList<>(1));
+                    if (!numbers.contains(entry.getNumberStr())) {
+                        numbers.add(entry.getNumberStr());
+                    }
+                }
+            }
+            numbersByPhrase.put(entryType, phrases);
+        }
+    }
+
+    /**
+     * @return numbers of all entries having this phrase as a primary or alternate value, empty if none
+     */
+    public List<String> getNumbers(EntryType entryType, String phrase) {
+        Map<String, List<String>> phrases = numbersByPhrase.get(entryType);
+        if (phrases == null) {
+            throw new IllegalArgumentException("Invalid entry type: " + entryType);
+        }
+        return phrases.getOrDefault(normalize(phrase), Collections.emptyList());
+    }
+
+    private static String normalize(String phrase) {
+        return AnswerNormalizer.getDefault().normalize(phrase);
+    }
+}
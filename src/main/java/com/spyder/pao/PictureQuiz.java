@@ -0,0 +1,118 @@
+package com.spyder.pao;
+
+import com.spyder.pao.jfr.QuestionRenderEvent;
+import com.spyder.pao.model.*;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.spyder.pao.ConsoleColors.*;
+
+/**
+ * Reverse of {@link NumberQuiz}, shows a "person action object" picture and asks for the 6-digit number.
+ */
+public class PictureQuiz {
+
+    private final Random random;
+    private final ConsoleInput stdIn;
+    // Totals across every quiz this run, each session's statistics add to it
+    private final QuizStatistics totals;
+
+    public PictureQuiz(ConsoleInput stdIn, QuizStatistics totals) {
+        random = new Random();
+        this.stdIn = stdIn;
+        this.totals = totals;
+    }
+
+    /**
+     * @param drillSeconds per-question speed drill limit, 0 for none
+     * @return false if EXIT was entered, so the program should stop
+     */
+    public boolean beginQuiz(QuizConfiguration config, DataSource ds, int timerMinutes, int drillSeconds) {
+        List<PaoEntry> entries = ds.getEntries(config);
+        if (entries.isEmpty()) {
+            System.out.println("No entries in selection " + config.describeSelection());
+            return true;
+        }
+        PhraseIndex phraseIndex = ds.getPhraseIndex();
+
+        QuizStatistics stats = new QuizStatistics(totals);
+        if (timerMinutes > 0) {
+            stats.startTimer(timerMinutes);
+            System.out.println("Timer started: " + timerMinutes + " minute" + (timerMinutes == 1 ? "" : "s"));
+        }
+        if (drillSeconds > 0) {
+            System.out.println("Speed drill: " + drillSeconds + " second" + (drillSeconds == 1 ? "" : "s") + " per question");
+        }
+
+        while (true) {
+            QuestionRenderEvent renderEvent = new QuestionRenderEvent();
+            renderEvent.begin();
+            PaoEntry person = entries.get(random.nextInt(entries.size()));
+            PaoEntry action = entries.get(random.nextInt(entries.size()));
+            PaoEntry object = entries.get(random.nextInt(entries.size()));
+            String number = person.getNumberStr() + action.getNumberStr() + object.getNumberStr();
+            System.out.println();
+            System.out.println("Number for " + color(CYAN, person.getPerson()) + " " + color(GREEN, action.getAction()) + " " + color(PURPLE, object.getObject()));
+            System.out.print("> ");
+            renderEvent.quiz = "PICTURE";
+            renderEvent.commit();
+            long promptNanos = System.nanoTime();
+            ConsoleInput.Line line = stdIn.nextLine(stats.answerDeadlineNanos(promptNanos, drillSeconds));
+            if (line == null) {
+                System.out.println();
+                if (stats.hasTimerExpired()) {
+                    stats.printSummary();
+                    return true;
+                }
+                stats.recordTimeout(System.nanoTime() - promptNanos);
+                System.out.println(color(RED, "Too slow: ") + color(CYAN, number));
+                // Swallow whatever was being typed when time ran out so it isn't taken as the next answer
+                System.out.print("Press Enter to continue");
+                if (stdIn.nextLine(stats.answerDeadlineNanos(System.nanoTime(), 0)) == null) {
+                    System.out.println();
+                    stats.printSummary();
+                    return true;
+                }
+                continue;
+            }
+            String answerText = line.text();
+
+            // Handle if user types a quit command as an answer
+            Command command = Command.getCommand(answerText);
+            switch (command) {
+                case QUIT -> {
+                    return true;
+                }
+                case EXIT -> {
+                    return false;
+                }
+                case null, default -> { }
+            }
+
+            // Several entries can share a phrase, so any number that resolves to the displayed phrase is accepted
+            String userNumber = answerText.replaceAll("\\s", "");
+            int personEnd = person.getNumberStr().length();
+            int actionEnd = personEnd + action.getNumberStr().length();
+            boolean correct = userNumber.length() == number.length()
+                    && phraseIndex.getNumbers(EntryType.PERSON, person.getPerson()).contains(userNumber.substring(0, personEnd))
+                    && phraseIndex.getNumbers(EntryType.ACTION, action.getAction()).contains(userNumber.substring(personEnd, actionEnd))
+                    && phraseIndex.getNumbers(EntryType.OBJECT, object.getObject()).contains(userNumber.substring(actionEnd));
+
+            stats.recordAnswer(correct, line.latencyNanos(promptNanos), line.recallNanos(promptNanos));
+
+            if (correct) {
+                String extraText = userNumber.equals(number) ? "" : (" " + color(CYAN, number));
+                System.out.println(color(GREEN, "Correct" + extraText));
+            } else {
+                System.out.println(color(RED, "Wrong:   ") + color(CYAN, number));
+            }
+
+            // Check if timer has expired
+            if (stats.hasTimerExpired()) {
+                stats.printSummary();
+                return true;
+            }
+        }
+    }
+}
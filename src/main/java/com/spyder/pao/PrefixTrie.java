@@ -0,0 +1,113 @@
+package com.spyder.pao;
+
+import java.util.*;
+
+/**
+ * Immutable character trie over a set of values, used to complete partially typed answers.
+ * <p>
+ * Nodes are stored in flat arrays rather than objects. The children of a node are contiguous and sorted by character,
+ * so a lookup walks the prefix one character at a time with a binary search over at most a few dozen children and
+ * allocates nothing until it builds the completed string.
+ */
+public class PrefixTrie {
+
+    private static final int ROOT = 0;
+
+    private final char[] labels;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final BitSet terminal;
+
+    public PrefixTrie(Collection<String> values) {
+        BuildNode root = new BuildNode();
+        for (String value : values) {
+            BuildNode node = root;
+            for (int i = 0; i < value.length(); i++) {
+                node = node.children.computeIfAbsent(value.charAt(i), c -> new BuildNode());
+            }
+            node.terminal = true;
+        }
+
+        // Breadth first numbering keeps every node's children next to each other
+        List<BuildNode> order = new ArrayList<>();
+        List<Character> orderLabels = new ArrayList<>();
+        order.add(root);
+        orderLabels.add('\0');
+        for (int i = 0; i < order.size(); i++) {
+            order.get(i).children.forEach((label, child) -> {
+                order.add(child);
+                orderLabels.add(label);
+            });
+        }
+        labels = new char[order.size()];
+        firstChild = new int[order.size()];
+        childCount = new int[order.size()];
+        terminal = new BitSet(order.size());
+        int nextIndex = 1;
+        for (int i = 0; i < order.size(); i++) {
+            BuildNode node = order.get(i);
+            labels[i] = orderLabels.get(i);
+            firstChild[i] = nextIndex;
+            childCount[i] = node.children.size();
+            nextIndex += node.children.size();
+            if (node.terminal) {
+                terminal.set(i);
+            }
+        }
+    }
+
+    /**
+     * Extends the prefix as far as every value starting with it agrees, ie "luke" -> "luke skywalker" when only one
+     * value starts with "luke". Matching ignores case.
+     *
+     * @return the extended prefix, or the prefix unchanged if no value starts with it or values differ at the next
+     * character
+     */
+    public String complete(String prefix) {
+        int node = find(prefix.toLowerCase());
+        if (node < 0) {
+            return prefix;
+        }
+        StringBuilder completed = null;
+        while (!terminal.get(node) && childCount[node] == 1) {
+            node = firstChild[node];
+            if (completed == null) {
+                completed = new StringBuilder(prefix);
+            }
+            completed.append(labels[node]);
+        }
+        return completed == null ? prefix : completed.toString();
+    }
+
+    /**
+     * @return node reached by walking the prefix, or -1 if no value starts with it
+     */
+    private int find(String prefix) {
+        int node = ROOT;
+        for (int i = 0; i < prefix.length() && node >= 0; i++) {
+            node = child(node, prefix.charAt(i));
+        }
+        return node;
+    }
+
+    private int child(int node, char label) {
+        int low = firstChild[node];
+        int high = low + childCount[node] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (labels[mid] < label) {
+                low = mid + 1;
+            } else if (labels[mid] > label) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static class BuildNode {
+        private final TreeMap<Character, BuildNode> children = new TreeMap<>();
+        private boolean terminal;
+    }
+}
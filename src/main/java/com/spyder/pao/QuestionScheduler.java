@@ -0,0 +1,33 @@
+package com.spyder.pao;
+
+import com.spyder.pao.model.QuestionOrder;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Picks which of a quiz's entries to ask about next, and learns from how each question went. Shared by the given quiz
+ * and {@link LearnerSimulator}, so simulated orders behave exactly like the real ones.
+ */
+public interface QuestionScheduler {
+
+    /**
+     * @return index of the entry to ask about next
+     */
+    int next();
+
+    /**
+     * Reports the result of the question about the entry last returned by {@link #next()} for it.
+     */
+    void recordResult(int index, boolean correct);
+
+    static QuestionScheduler create(QuestionOrder order, int entries, RandomGenerator random) {
+        if (entries < 1) {
+            throw new IllegalArgumentException("No entries to schedule");
+        }
+        return switch (order) {
+            case SHUFFLE -> new ShuffleCycleScheduler(entries, random);
+            case WEIGHTED -> new WeightedScheduler(entries, random);
+            case SPACED -> new SpacedRepetitionScheduler(entries, random);
+        };
+    }
+}
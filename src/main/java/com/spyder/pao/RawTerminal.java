@@ -0,0 +1,72 @@
+package com.spyder.pao;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Switches the terminal on stdin between line and raw (unbuffered, no echo) mode with stty, so keystrokes can be read
+ * one at a time. Only works on unix-like systems, and only when stdin is a terminal.
+ */
+public class RawTerminal {
+
+    private final String savedSettings;
+
+    private RawTerminal(String savedSettings) {
+        this.savedSettings = savedSettings;
+    }
+
+    /**
+     * Puts the terminal in raw mode, restored when the program exits.
+     *
+     * @return the terminal, or null if stdin isn't a terminal or stty isn't available
+     */
+    public static RawTerminal enterRawMode() {
+        String saved = stty("-g");
+        if (saved == null || stty("-icanon", "-echo", "min", "1") == null) {
+            return null;
+        }
+        RawTerminal terminal = new RawTerminal(saved.trim());
+        Runtime.getRuntime().addShutdownHook(new Thread(terminal::restore, "restore-terminal"));
+        return terminal;
+    }
+
+    /**
+     * @return lines the terminal shows, or 0 if that can't be found out
+     */
+    public int rows() {
+        String size = stty("size");
+        try {
+            return size == null ? 0 : Integer.parseInt(size.trim().split(" ")[0]);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public void restore() {
+        stty(savedSettings);
+    }
+
+    /**
+     * Runs stty against our own stdin, which fails if stdin is a pipe or file.
+     *
+     * @return stty's output, or null if it failed
+     */
+    private static String stty(String... args) {
+        String[] command = new String[args.length + 1];
+        command[0] = "stty";
+        System.arraycopy(args, 0, command, 1, args.length);
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectInput(ProcessBuilder.Redirect.INHERIT)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            return process.waitFor() == 0 ? output : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
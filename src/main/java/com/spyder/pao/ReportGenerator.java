@@ -0,0 +1,348 @@
+package com.spyder.pao;
+
+import com.spyder.pao.model.EntryType;
+import lombok.SneakyThrows;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+
+/**
+ * Builds a progress report from the {@link SessionHistory} files: accuracy per entry, per answer type and per day,
+ * latency percentiles and a week over week trend, written as CSV files and a static HTML page.
+ * <p>
+ * History files are aggregated in parallel on a fork-join pool. Each file is streamed line by line into fixed size
+ * counters and a latency histogram, so memory stays bounded no matter how many answers the history holds.
+ * Run with 'mvn exec:java -Dexec.mainClass=com.spyder.pao.ReportGenerator' or the REPORT command.
+ */
+public class ReportGenerator {
+
+    public static final String REPORT_DIR = "reports";
+    // Far past any deck, a line with a higher entry number is corrupt and would make the per entry counters huge
+    private static final int MAX_ENTRY = 99_999;
+
+    public static void main(String[] args) {
+        Path historyDir = Path.of(args.length > 0 ? args[0] : SessionHistory.HISTORY_DIR);
+        Path reportDir = Path.of(args.length > 1 ? args[1] : REPORT_DIR);
+        generate(historyDir, reportDir);
+    }
+
+    @SneakyThrows
+    public static void generate(Path historyDir, Path reportDir) {
+        if (!Files.isDirectory(historyDir)) {
+            System.out.println("No history found in " + historyDir);
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(historyDir)) {
+            files = paths.filter(p -> p.getFileName().toString().endsWith(SessionHistory.FILE_EXTENSION)).sorted().toList();
+        }
+        long start = System.nanoTime();
+        Aggregate aggregate = ForkJoinPool.commonPool().invoke(new AggregateTask(files, 0, files.size()));
+        if (aggregate.total == 0) {
+            System.out.println("No answers recorded in " + historyDir);
+            return;
+        }
+
+        Files.createDirectories(reportDir);
+        writeEntriesCsv(aggregate, reportDir.resolve("entries.csv"));
+        writeTypesCsv(aggregate, reportDir.resolve("types.csv"));
+        writeDaysCsv(aggregate, reportDir.resolve("days.csv"));
+        writeHtml(aggregate, reportDir.resolve("report.html"));
+        System.out.printf("✓ Report for %d answers from %d files written to %s in %d ms%n",
+                aggregate.total, files.size(), reportDir, (System.nanoTime() - start) / 1_000_000);
+        if (aggregate.malformed > 0) {
+            System.out.println("[WARN] " + aggregate.malformed + " malformed lines were skipped");
+        }
+    }
+
+    private static class AggregateTask extends RecursiveTask<Aggregate> {
+        private final List<Path> files;
+        private final int from;
+        private final int to;
+
+        AggregateTask(List<Path> files, int from, int to) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Aggregate compute() {
+            if (to - from <= 1) {
+                Aggregate aggregate = new Aggregate();
+                if (from < to) {
+                    aggregate.readFile(files.get(from));
+                }
+                return aggregate;
+            }
+            int mid = (from + to) >>> 1;
+            AggregateTask left = new AggregateTask(files, from, mid);
+            left.fork();
+            Aggregate right = new AggregateTask(files, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * Answer counters for a set of history files. Entry counters grow with the highest entry number, day counters with
+     * the number of days practiced, everything else is fixed size.
+     */
+    private static class Aggregate {
+        private long total;
+        private long correct;
+        private long exact;
+        // Lines skipped because they couldn't be read, not counted anywhere else
+        private long malformed;
+        private long[] entryTotal = new long[100];
+        private long[] entryCorrect = new long[100];
+        private final long[] typeTotal = new long[EntryType.values().length];
+        private final long[] typeCorrect = new long[EntryType.values().length];
+        // day -> {answers, correct, sum of latency in micros}
+        private final TreeMap<LocalDate, long[]> days = new TreeMap<>();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        void readFile(Path file) {
+            try (BufferedReader br = Files.newBufferedReader(file)) {
+                String line;
+                int lineNumber = 0;
+                while ((line = br.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    // One bad line, ie cut short by a crash mid-append, doesn't lose the rest of the day
+                    try {
+                        record(line);
+                    } catch (RuntimeException e) {
+                        malformed++;
+                        System.out.println("[WARN] Skipping line " + lineNumber + " of " + file + " - " + e);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // epochMillis,entryNumber,givenType,answerType,correct,exactlyCorrect,latencyMicros
+        private void record(String line) {
+            String[] values = line.split(",");
+            long epochMillis = Long.parseLong(values[0]);
+            int entry = Integer.parseInt(values[1]);
+            EntryType answerType = EntryType.valueOf(values[3]);
+            boolean isCorrect = Boolean.parseBoolean(values[4]);
+            boolean isExact = Boolean.parseBoolean(values[5]);
+            long latencyMicros = Long.parseLong(values[6]);
+            // Everything is checked before counting, so a bad line leaves no partial counts behind
+            if (entry < 0 || entry > MAX_ENTRY) {
+                throw new IllegalArgumentException("Entry number " + entry + " out of range");
+            }
+            LocalDate day = Instant.ofEpochMilli(epochMillis).atZone(ZoneId.systemDefault()).toLocalDate();
+
+            total++;
+            correct += isCorrect ? 1 : 0;
+            exact += isExact ? 1 : 0;
+            if (entry >= entryTotal.length) {
+                entryTotal = Arrays.copyOf(entryTotal, Math.max(entry + 1, entryTotal.length * 2));
+                entryCorrect = Arrays.copyOf(entryCorrect, entryTotal.length);
+            }
+            entryTotal[entry]++;
+            entryCorrect[entry] += isCorrect ? 1 : 0;
+            typeTotal[answerType.ordinal()]++;
+            typeCorrect[answerType.ordinal()] += isCorrect ? 1 : 0;
+            long[] dayCounts = days.computeIfAbsent(day, d -> new long[3]);
+            dayCounts[0]++;
+            dayCounts[1] += isCorrect ? 1 : 0;
+            dayCounts[2] += latencyMicros;
+            latency.record(latencyMicros);
+        }
+
+        Aggregate merge(Aggregate other) {
+            total += other.total;
+            correct += other.correct;
+            exact += other.exact;
+            malformed += other.malformed;
+            if (other.entryTotal.length > entryTotal.length) {
+                entryTotal = Arrays.copyOf(entryTotal, other.entryTotal.length);
+                entryCorrect = Arrays.copyOf(entryCorrect, other.entryTotal.length);
+            }
+            for (int i = 0; i < other.entryTotal.length; i++) {
+                entryTotal[i] += other.entryTotal[i];
+                entryCorrect[i] += other.entryCorrect[i];
+            }
+            for (int i = 0; i < typeTotal.length; i++) {
+                typeTotal[i] += other.typeTotal[i];
+                typeCorrect[i] += other.typeCorrect[i];
+            }
+            other.days.forEach((day, counts) -> days.merge(day, counts, (a, b) -> {
+                for (int i = 0; i < a.length; i++) {
+                    a[i] += b[i];
+                }
+                return a;
+            }));
+            latency.merge(other.latency);
+            return this;
+        }
+
+        /**
+         * @return accuracy over the 7 days ending at lastDay, or -1 if there were no answers
+         */
+        double weekAccuracy(LocalDate lastDay) {
+            long answers = 0;
+            long right = 0;
+            for (long[] counts : days.subMap(lastDay.minusDays(6), true, lastDay, true).values()) {
+                answers += counts[0];
+                right += counts[1];
+            }
+            return answers == 0 ? -1 : (double) right / answers;
+        }
+    }
+
+    /**
+     * Fixed size latency histogram, 10ms buckets up to 10 seconds then 1 second buckets up to 2 minutes, so
+     * percentiles are accurate to a bucket regardless of how many answers are recorded.
+     */
+    private static class LatencyHistogram {
+        private static final int FINE_BUCKETS = 1000;
+        private static final long FINE_BUCKET_MICROS = 10_000;
+        private static final int COARSE_BUCKETS = 110;
+        private static final long COARSE_BUCKET_MICROS = 1_000_000;
+
+        private final long[] counts = new long[FINE_BUCKETS + COARSE_BUCKETS + 1];
+        private long total;
+
+        void record(long micros) {
+            int bucket;
+            if (micros < FINE_BUCKETS * FINE_BUCKET_MICROS) {
+                bucket = (int) (Math.max(micros, 0) / FINE_BUCKET_MICROS);
+            } else {
+                bucket = (int) Math.min(FINE_BUCKETS + (micros - FINE_BUCKETS * FINE_BUCKET_MICROS) / COARSE_BUCKET_MICROS, counts.length - 1);
+            }
+            counts[bucket]++;
+            total++;
+        }
+
+        void merge(LatencyHistogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            total += other.total;
+        }
+
+        /**
+         * @return upper bound in seconds of the bucket holding the given percentile
+         */
+        double percentileSeconds(double percentile) {
+            long rank = (long) Math.ceil(total * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return bucketUpperMicros(i) / 1_000_000.0;
+                }
+            }
+            return 0;
+        }
+
+        private static long bucketUpperMicros(int bucket) {
+            if (bucket < FINE_BUCKETS) {
+                return (bucket + 1) * FINE_BUCKET_MICROS;
+            }
+            return FINE_BUCKETS * FINE_BUCKET_MICROS + (bucket - FINE_BUCKETS + 1) * COARSE_BUCKET_MICROS;
+        }
+    }
+
+    private static void writeEntriesCsv(Aggregate aggregate, Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("entry,answers,correct,accuracy");
+            writer.newLine();
+            for (int i = 0; i < aggregate.entryTotal.length; i++) {
+                if (aggregate.entryTotal[i] > 0) {
+                    writer.write(i + "," + aggregate.entryTotal[i] + "," + aggregate.entryCorrect[i] + "," + percent(aggregate.entryCorrect[i], aggregate.entryTotal[i]));
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    private static void writeTypesCsv(Aggregate aggregate, Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("answerType,answers,correct,accuracy");
+            writer.newLine();
+            for (EntryType type : EntryType.values()) {
+                long answers = aggregate.typeTotal[type.ordinal()];
+                if (answers > 0) {
+                    writer.write(type + "," + answers + "," + aggregate.typeCorrect[type.ordinal()] + "," + percent(aggregate.typeCorrect[type.ordinal()], answers));
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    private static void writeDaysCsv(Aggregate aggregate, Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("day,answers,correct,accuracy,averageSeconds");
+            writer.newLine();
+            for (Map.Entry<LocalDate, long[]> day : aggregate.days.entrySet()) {
+                long[] counts = day.getValue();
+                writer.write(day.getKey() + "," + counts[0] + "," + counts[1] + "," + percent(counts[1], counts[0]) + "," + averageSeconds(counts));
+                writer.newLine();
+            }
+        }
+    }
+
+    private static void writeHtml(Aggregate aggregate, Path file) throws IOException {
+        LocalDate lastDay = aggregate.days.lastKey();
+        double thisWeek = aggregate.weekAccuracy(lastDay);
+        double lastWeek = aggregate.weekAccuracy(lastDay.minusDays(7));
+        String trend = lastWeek < 0 ? "no answers the week before" : String.format(Locale.ROOT, "%+.1f points vs the week before", (thisWeek - lastWeek) * 100);
+
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>PAO progress report</title>\n")
+                .append("<style>body{font-family:sans-serif}table{border-collapse:collapse;margin-bottom:2em}td,th{border:1px solid #ccc;padding:2px 8px;text-align:right}</style>\n")
+                .append("</head><body>\n<h1>PAO progress report</h1>\n")
+                .append(String.format(Locale.ROOT, "<p>%d answers, %s%% correct, %s%% exactly correct</p>%n", aggregate.total, percent(aggregate.correct, aggregate.total), percent(aggregate.exact, aggregate.total)))
+                .append(String.format(Locale.ROOT, "<p>Last 7 days to %s: %.1f%% correct, %s</p>%n", lastDay, thisWeek * 100, trend))
+                .append(String.format(Locale.ROOT, "<p>Answer time p50 %.2fs, p90 %.2fs, p99 %.2fs</p>%n",
+                        aggregate.latency.percentileSeconds(50), aggregate.latency.percentileSeconds(90), aggregate.latency.percentileSeconds(99)));
+
+        html.append("<h2>By answer type</h2>\n<table><tr><th>Type</th><th>Answers</th><th>Accuracy</th></tr>\n");
+        for (EntryType type : EntryType.values()) {
+            long answers = aggregate.typeTotal[type.ordinal()];
+            if (answers > 0) {
+                html.append(String.format(Locale.ROOT, "<tr><td>%s</td><td>%d</td><td>%s%%</td></tr>%n", type, answers, percent(aggregate.typeCorrect[type.ordinal()], answers)));
+            }
+        }
+        html.append("</table>\n<h2>By day</h2>\n<table><tr><th>Day</th><th>Answers</th><th>Accuracy</th><th>Average time</th></tr>\n");
+        for (Map.Entry<LocalDate, long[]> day : aggregate.days.descendingMap().entrySet()) {
+            long[] counts = day.getValue();
+            html.append(String.format(Locale.ROOT, "<tr><td>%s</td><td>%d</td><td>%s%%</td><td>%ss</td></tr>%n", day.getKey(), counts[0], percent(counts[1], counts[0]), averageSeconds(counts)));
+        }
+        html.append("</table>\n<h2>By entry</h2>\n<table><tr><th>Entry</th><th>Answers</th><th>Accuracy</th></tr>\n");
+        for (int i = 0; i < aggregate.entryTotal.length; i++) {
+            if (aggregate.entryTotal[i] > 0) {
+                html.append(String.format(Locale.ROOT, "<tr><td>%02d</td><td>%d</td><td>%s%%</td></tr>%n", i, aggregate.entryTotal[i], percent(aggregate.entryCorrect[i], aggregate.entryTotal[i])));
+            }
+        }
+        html.append("</table>\n</body></html>\n");
+        Files.writeString(file, html);
+    }
+
+    private static String percent(long count, long total) {
+        return String.format(Locale.ROOT, "%.1f", total == 0 ? 0 : count * 100.0 / total);
+    }
+
+    private static String averageSeconds(long[] dayCounts) {
+        return String.format(Locale.ROOT, "%.2f", dayCounts[0] == 0 ? 0 : dayCounts[2] / (double) dayCounts[0] / 1_000_000.0);
+    }
+}
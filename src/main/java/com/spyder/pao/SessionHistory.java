@@ -0,0 +1,102 @@
+package com.spyder.pao;
+
+import com.spyder.pao.model.EntrySelection;
+import com.spyder.pao.model.EntryType;
+import com.spyder.pao.model.PaoEntry;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.BitSet;
+
+/**
+ * Appends every graded answer to a per-day history file, history/yyyy-MM-dd.csv, read back by {@link ReportGenerator}.
+ * Line format: epochMillis,entryNumber,givenType,answerType,correct,exactlyCorrect,latencyMicros
+ * <p>
+ * The numbers of the entries answered wrong during the session are kept in history/{@value #MISSED_FILE}, replaced by
+ * each session once it records its first answer, so they can be selected for the next quiz.
+ */
+public class SessionHistory implements AutoCloseable {
+
+    public static final String HISTORY_DIR = "history";
+    public static final String FILE_EXTENSION = ".csv";
+    public static final String MISSED_FILE = "missed.txt";
+
+    private final BufferedWriter writer;
+    private final BitSet missed = new BitSet();
+    private boolean answered;
+
+    private SessionHistory(BufferedWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Opens today's history file for appending. History is best effort, if the file can't be opened answers simply
+     * aren't recorded.
+     */
+    public static SessionHistory open() {
+        try {
+            Path dir = Path.of(HISTORY_DIR);
+            Files.createDirectories(dir);
+            Path file = dir.resolve(LocalDate.now() + FILE_EXTENSION);
+            return new SessionHistory(Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        } catch (IOException e) {
+            System.out.println("[WARN] Not recording history - " + e.getMessage());
+            return new SessionHistory(null);
+        }
+    }
+
+    public void recordAnswer(PaoEntry entry, EntryType givenType, EntryType answerType, boolean correct, boolean exactlyCorrect, long latencyNanos) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(System.currentTimeMillis() + "," + entry.getNumber() + "," + givenType + "," + answerType + ","
+                    + correct + "," + exactlyCorrect + "," + latencyNanos / 1000);
+            writer.newLine();
+            // Flushed per answer so quitting with EXIT or Ctrl-C doesn't lose the session
+            writer.flush();
+            if (!answered || (!correct && !missed.get(entry.getNumber()))) {
+                answered = true;
+                if (!correct) {
+                    missed.set(entry.getNumber());
+                }
+                Files.writeString(Path.of(HISTORY_DIR, MISSED_FILE), EntrySelection.of(missed) + System.lineSeparator());
+            }
+        } catch (IOException e) {
+            System.out.println("[WARN] Failed to record history - " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param lastNumber the deck's last entry, a file listing entries past it is ignored
+     * @return entries answered wrong in the last session that recorded any answers, empty if there is none
+     */
+    public static EntrySelection readLastMissed(int lastNumber) {
+        Path file = Path.of(HISTORY_DIR, MISSED_FILE);
+        if (!Files.exists(file)) {
+            return EntrySelection.of(new BitSet());
+        }
+        try {
+            return EntrySelection.parse(Files.readString(file), lastNumber);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("[WARN] Can't read missed entries - " + e.getMessage());
+            return EntrySelection.of(new BitSet());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.out.println("[WARN] Failed to close history - " + e.getMessage());
+        }
+    }
+}
@@ -1,9 +1,23 @@
 package com.spyder.pao;
 
+import java.util.List;
+
 public class SheetsConfig {
     public static final String SPREADSHEET_ID = "1dyU0XsqiNe2L0OmYJmyMHFEKe0ua4LSAY7wQxklXsw8";
     public static final String CELL_RANGE = "B2";
     public static final String CREDENTIALS_FILE_PATH = ".keys/pao-service-account-key.json";
     public static final String APPLICATION_NAME = "PersonActionObject Data Sync";
     public static final String DATA_FILE_PATH = "src/main/resources/data.txt";
+    public static final String ROOT_URL = "https://sheets.googleapis.com/";
+
+    // The first deck is the one the quizzes use
+    public static final List<SheetsDeck> DECKS = List.of(
+            new SheetsDeck("pao", SPREADSHEET_ID, CELL_RANGE, DATA_FILE_PATH)
+    );
+
+    /**
+     * A deck kept as csv text in a single cell of a spreadsheet.
+     */
+    public record SheetsDeck(String name, String spreadsheetId, String range, String filePath) {
+    }
 }
@@ -0,0 +1,45 @@
+package com.spyder.pao;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Asks every entry once in a random order, then reshuffles. Results don't change the order.
+ */
+public class ShuffleCycleScheduler implements QuestionScheduler {
+
+    private final int[] order;
+    private final RandomGenerator random;
+    private int position;
+
+    public ShuffleCycleScheduler(int entries, RandomGenerator random) {
+        this.random = random;
+        order = new int[entries];
+        for (int i = 0; i < entries; i++) {
+            order[i] = i;
+        }
+        position = entries;
+    }
+
+    @Override
+    public int next() {
+        if (position == order.length) {
+            shuffle();
+            position = 0;
+        }
+        return order[position++];
+    }
+
+    @Override
+    public void recordResult(int index, boolean correct) {
+    }
+
+    // Fisher-Yates
+    private void shuffle() {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+    }
+}
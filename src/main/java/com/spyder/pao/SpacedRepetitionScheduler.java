@@ -0,0 +1,57 @@
+package com.spyder.pao;
+
+import java.util.PriorityQueue;
+import java.util.random.RandomGenerator;
+
+/**
+ * Leitner style spaced repetition. Each entry sits in a box, a right answer moves it up a box and a miss sends it back
+ * to the first. An entry is due again a number of questions later that grows with its box, and the entry that has been
+ * due the longest is asked next. Entries start out due in a random order, so the first pass is a shuffle.
+ */
+public class SpacedRepetitionScheduler implements QuestionScheduler {
+
+    // Questions until an entry in each box is due again
+    private static final int[] INTERVALS = {2, 5, 12, 30, 75, 190};
+
+    private final int[] box;
+    private final long[] due;
+    private final int[] tieBreak;
+    private final PriorityQueue<Integer> queue;
+    private long questionsAsked;
+    private int pending = -1;
+
+    public SpacedRepetitionScheduler(int entries, RandomGenerator random) {
+        box = new int[entries];
+        due = new long[entries];
+        tieBreak = new int[entries];
+        for (int i = 0; i < entries; i++) {
+            tieBreak[i] = random.nextInt();
+        }
+        queue = new PriorityQueue<>(entries, (a, b) -> due[a] != due[b] ? Long.compare(due[a], due[b]) : Integer.compare(tieBreak[a], tieBreak[b]));
+        for (int i = 0; i < entries; i++) {
+            queue.add(i);
+        }
+    }
+
+    @Override
+    public int next() {
+        if (pending >= 0) {
+            // Asked but never answered, ask again as soon as possible
+            queue.add(pending);
+        }
+        questionsAsked++;
+        pending = queue.poll();
+        return pending;
+    }
+
+    @Override
+    public void recordResult(int index, boolean correct) {
+        if (index != pending) {
+            return;
+        }
+        box[index] = correct ? Math.min(box[index] + 1, INTERVALS.length - 1) : 0;
+        due[index] = questionsAsked + INTERVALS[box[index]];
+        queue.add(index);
+        pending = -1;
+    }
+}
@@ -0,0 +1,241 @@
+package com.spyder.pao;
+
+import com.spyder.pao.model.EntryType;
+import com.spyder.pao.model.PaoEntry;
+
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Substring search over every field and alternate of a deck. Each row's text is split into overlapping 3 character
+ * trigrams, and the index keeps the sorted list of rows containing each one. A query only looks at the rows having all
+ * of its trigrams, intersecting the shortest lists first, then checks those few rows really contain it, so search time
+ * depends on how common the query's trigrams are rather than on deck size.
+ * <p>
+ * Only row numbers are kept, the rows themselves are read back through the deck when checking candidates. Queries
+ * shorter than a trigram can't use the index and scan every row.
+ */
+public class TrigramIndex {
+
+    private static final List<EntryType> SEARCHED_TYPES = Arrays.asList(EntryType.NUMBER, EntryType.PERSON, EntryType.ACTION, EntryType.OBJECT);
+    // Between fields, so a match can't span two of them
+    private static final char FIELD_SEPARATOR = '\n';
+    // Trigram keys are at most 48 bits, so this is never one
+    private static final long EMPTY = -1;
+
+    private final int size;
+    private final IntFunction<PaoEntry> entryAt;
+    // Open addressing table of trigrams packed by key(), the rows containing keys[slot] are
+    // postings[postingStarts[slot]] until postingStarts[slot + 1], ascending
+    private long[] keys;
+    private int[] postingStarts;
+    private int[] postings;
+
+    /**
+     * @param size    rows in the deck
+     * @param entryAt the entry of a row
+     */
+    public TrigramIndex(int size, IntFunction<PaoEntry> entryAt) {
+        this.size = size;
+        this.entryAt = entryAt;
+        // Only held while building
+        String[] texts = new String[size];
+        for (int row = 0; row < size; row++) {
+            texts[row] = text(entryAt.apply(row));
+        }
+        build(texts);
+    }
+
+    // Lower case text of the entry, its fields separated by FIELD_SEPARATOR
+    private static String text(PaoEntry entry) {
+        StringBuilder text = new StringBuilder();
+        for (EntryType entryType : SEARCHED_TYPES) {
+            for (String value : entry.getAllByType(entryType)) {
+                if (!text.isEmpty()) {
+                    text.append(FIELD_SEPARATOR);
+                }
+                text.append(value.trim().toLowerCase());
+            }
+        }
+        return text.toString();
+    }
+
+    // Counting sort of (trigram, row) pairs, same as DataSource's row index: count each trigram's rows, then fill them in
+    private void build(String[] texts) {
+        keys = new long[64];
+        Arrays.fill(keys, EMPTY);
+        int size = 0;
+        int[] counts = new int[keys.length];
+        int[] lastRow = new int[keys.length];
+        Arrays.fill(lastRow, -1);
+        for (int row = 0; row < texts.length; row++) {
+            String text = texts[row];
+            for (int i = 0; i + 3 <= text.length(); i++) {
+                long key = key(text, i);
+                int slot = slot(key);
+                if (keys[slot] == EMPTY) {
+                    if ((size + 1) * 2 > keys.length) {
+                        int[][] moved = rehash(counts, lastRow);
+                        counts = moved[0];
+                        lastRow = moved[1];
+                        slot = slot(key);
+                    }
+                    keys[slot] = key;
+                    size++;
+                }
+                // A trigram repeated in the same row is only counted once
+                if (lastRow[slot] != row) {
+                    lastRow[slot] = row;
+                    counts[slot]++;
+                }
+            }
+        }
+        postingStarts = new int[keys.length + 1];
+        for (int slot = 0; slot < keys.length; slot++) {
+            postingStarts[slot + 1] = postingStarts[slot] + counts[slot];
+        }
+        postings = new int[postingStarts[keys.length]];
+        int[] next = Arrays.copyOf(postingStarts, keys.length);
+        Arrays.fill(lastRow, -1);
+        for (int row = 0; row < texts.length; row++) {
+            String text = texts[row];
+            for (int i = 0; i + 3 <= text.length(); i++) {
+                int slot = slot(key(text, i));
+                if (lastRow[slot] != row) {
+                    lastRow[slot] = row;
+                    postings[next[slot]++] = row;
+                }
+            }
+        }
+    }
+
+    // Doubles the table, moving the per slot arrays along with the keys
+    private int[][] rehash(int[] counts, int[] lastRow) {
+        long[] oldKeys = keys;
+        keys = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        int[] newCounts = new int[keys.length];
+        int[] newLastRow = new int[keys.length];
+        Arrays.fill(newLastRow, -1);
+        for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+            if (oldKeys[oldSlot] != EMPTY) {
+                int slot = slot(oldKeys[oldSlot]);
+                keys[slot] = oldKeys[oldSlot];
+                newCounts[slot] = counts[oldSlot];
+                newLastRow[slot] = lastRow[oldSlot];
+            }
+        }
+        return new int[][] {newCounts, newLastRow};
+    }
+
+    /**
+     * @return the slot holding the key, or the empty slot it would go in
+     */
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * @return entries with a primary or alternate value containing the text, ignoring case, in deck order
+     */
+    public List<PaoEntry> find(String text) {
+        String query = text.trim().toLowerCase();
+        List<PaoEntry> found = new ArrayList<>();
+        if (query.isEmpty()) {
+            return found;
+        }
+        if (query.length() < 3) {
+            for (int row = 0; row < size; row++) {
+                addIfContains(found, row, query);
+            }
+            return found;
+        }
+        for (int row : candidates(query)) {
+            addIfContains(found, row, query);
+        }
+        return found;
+    }
+
+    private void addIfContains(List<PaoEntry> found, int row, String query) {
+        PaoEntry entry = entryAt.apply(row);
+        if (text(entry).contains(query)) {
+            found.add(entry);
+        }
+    }
+
+    /**
+     * @return rows having every trigram of the query
+     */
+    private int[] candidates(String query) {
+        int trigrams = query.length() - 2;
+        int[] slots = new int[trigrams];
+        for (int i = 0; i < trigrams; i++) {
+            slots[i] = slot(key(query, i));
+            if (keys[slots[i]] == EMPTY) {
+                return new int[0];
+            }
+        }
+        // Shortest first, the running intersection never gets longer than it
+        Integer[] order = new Integer[trigrams];
+        for (int i = 0; i < trigrams; i++) {
+            order[i] = slots[i];
+        }
+        Arrays.sort(order, Comparator.comparingInt(slot -> postingStarts[slot + 1] - postingStarts[slot]));
+        int[] result = Arrays.copyOfRange(postings, postingStarts[order[0]], postingStarts[order[0] + 1]);
+        int size = result.length;
+        for (int i = 1; i < trigrams && size > 0; i++) {
+            size = intersect(result, size, postingStarts[order[i]], postingStarts[order[i] + 1]);
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static long key(CharSequence text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    /**
+     * Keeps the rows of result that are also in postings[from] until postings[to], galloping through those since they
+     * are usually the longer list.
+     *
+     * @return number of rows left at the start of result
+     */
+    private int intersect(int[] result, int size, int from, int to) {
+        int kept = 0;
+        int j = from;
+        for (int i = 0; i < size && j < to; i++) {
+            int row = result[i];
+            j = lowerBound(j, to, row);
+            if (j < to && postings[j] == row) {
+                result[kept++] = row;
+            }
+        }
+        return kept;
+    }
+
+    // First index from start with a row >= the given one, checking 1, 2, 4... ahead before a binary search
+    private int lowerBound(int start, int end, int row) {
+        int step = 1;
+        int high = start;
+        while (high < end && postings[high] < row) {
+            start = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        int low = start;
+        high = Math.min(high, end);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (postings[mid] < row) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
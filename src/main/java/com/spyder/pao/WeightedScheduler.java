@@ -0,0 +1,71 @@
+package com.spyder.pao;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Picks entries at random in proportion to a weight that doubles each time the entry is missed and halves each time it
+ * is answered right. Weights are kept in a Fenwick tree so picking and updating cost O(log n) for any deck size.
+ */
+public class WeightedScheduler implements QuestionScheduler {
+
+    private static final int MIN_WEIGHT = 1;
+    private static final int MAX_WEIGHT = 16;
+
+    private final int[] weights;
+    // Fenwick tree over weights, tree[i] holds the sum of a power of two sized block ending at entry i - 1
+    private final long[] tree;
+    private final RandomGenerator random;
+    private long totalWeight;
+    private int lastIndex = -1;
+
+    public WeightedScheduler(int entries, RandomGenerator random) {
+        this.random = random;
+        weights = new int[entries];
+        tree = new long[entries + 1];
+        for (int i = 0; i < entries; i++) {
+            add(i, MIN_WEIGHT);
+        }
+    }
+
+    @Override
+    public int next() {
+        int index = pick();
+        // Never the same entry twice in a row if there is any other
+        if (index == lastIndex && weights.length > 1) {
+            index = pick();
+            if (index == lastIndex) {
+                index = (index + 1 + random.nextInt(weights.length - 1)) % weights.length;
+            }
+        }
+        lastIndex = index;
+        return index;
+    }
+
+    @Override
+    public void recordResult(int index, boolean correct) {
+        int weight = correct ? Math.max(MIN_WEIGHT, weights[index] / 2) : Math.min(MAX_WEIGHT, weights[index] * 2);
+        add(index, weight - weights[index]);
+    }
+
+    private void add(int index, int delta) {
+        weights[index] += delta;
+        totalWeight += delta;
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Finds the entry where the running sum of weights passes a random point, by descending the tree
+    private int pick() {
+        long target = random.nextLong(totalWeight);
+        int position = 0;
+        for (int step = Integer.highestOneBit(weights.length); step > 0; step >>= 1) {
+            int nextPosition = position + step;
+            if (nextPosition < tree.length && tree[nextPosition] <= target) {
+                position = nextPosition;
+                target -= tree[nextPosition];
+            }
+        }
+        return position;
+    }
+}
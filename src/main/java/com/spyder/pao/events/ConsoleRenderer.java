@@ -0,0 +1,74 @@
+package com.spyder.pao.events;
+
+import com.spyder.pao.jfr.QuestionRenderEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.spyder.pao.ConsoleColors.*;
+
+/**
+ * Prints the given quiz's questions and results.
+ */
+public class ConsoleRenderer implements QuizObserver {
+
+    private static final long NOT_SHOWN = Long.MIN_VALUE;
+
+    private String prompt;
+    private boolean questionShown;
+    // System.nanoTime() when the last question's prompt was flushed, until the quiz loop takes it
+    private final AtomicLong promptNanos = new AtomicLong(NOT_SHOWN);
+
+    /**
+     * Waits until the question last published is on screen, as the quiz loop times answers from then.
+     *
+     * @return System.nanoTime() when its prompt was flushed
+     */
+    public long awaitPrompt() {
+        long shown;
+        while ((shown = promptNanos.getAndSet(NOT_SHOWN)) == NOT_SHOWN) {
+            LockSupport.parkNanos(10_000);
+        }
+        return shown;
+    }
+
+    @Override
+    public void onEvent(QuizEvent event) {
+        switch (event.kind) {
+            case QUESTION -> {
+                // Timed here rather than in the quiz loop, which only publishes the question
+                QuestionRenderEvent renderEvent = new QuestionRenderEvent();
+                renderEvent.begin();
+                if (questionShown) {
+                    System.out.println(System.lineSeparator());
+                }
+                questionShown = true;
+                prompt = color(PURPLE, event.answerType.name()) + " for " + color(CYAN, event.givenType.name() + " " + event.entry.getValue(event.givenType)) + ": ";
+                System.out.print(prompt);
+                System.out.flush();
+                promptNanos.set(System.nanoTime());
+                renderEvent.quiz = "GIVEN";
+                renderEvent.commit();
+            }
+            case HINT -> System.out.print(color(YELLOW, "Hint: " + event.hint) + System.lineSeparator() + prompt);
+            case ANSWER -> {
+                String answer = event.entry.getValue(event.answerType);
+                if (event.correct) {
+                    String extraText = event.exactlyCorrect ? "" : (" " + color(CYAN, answer));
+                    String hintText = event.hintsShown == 0 ? "" : " with " + event.hintsShown + " hint" + (event.hintsShown == 1 ? "" : "s");
+                    System.out.println(color(GREEN, "Correct" + hintText + extraText));
+                } else {
+                    System.out.printf(color(RED, "Wrong:   [%s] %s has %s ") + color(CYAN, answer) + "%n",
+                            event.entry.getNumberStr(), event.entry.getValue(event.givenType), event.answerType.name());
+                }
+            }
+            case TIMEOUT -> {
+                System.out.println();
+                System.out.printf(color(RED, "Too slow: [%s] %s has %s ") + color(CYAN, event.entry.getValue(event.answerType)) + "%n",
+                        event.entry.getNumberStr(), event.entry.getValue(event.givenType), event.answerType.name());
+                System.out.print("Press Enter to continue");
+            }
+        }
+        System.out.flush();
+    }
+}
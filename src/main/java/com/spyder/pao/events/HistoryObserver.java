@@ -0,0 +1,30 @@
+package com.spyder.pao.events;
+
+import com.spyder.pao.SessionHistory;
+
+/**
+ * Writes answers and timeouts to the {@link SessionHistory}, closing it with the bus.
+ */
+public class HistoryObserver implements QuizObserver {
+
+    private final SessionHistory history;
+
+    public HistoryObserver(SessionHistory history) {
+        this.history = history;
+    }
+
+    @Override
+    public void onEvent(QuizEvent event) {
+        switch (event.kind) {
+            case ANSWER -> history.recordAnswer(event.entry, event.givenType, event.answerType, event.correct,
+                    event.exactlyCorrect, event.latencyNanos);
+            case TIMEOUT -> history.recordAnswer(event.entry, event.givenType, event.answerType, false, false, event.latencyNanos);
+            default -> { }
+        }
+    }
+
+    @Override
+    public void onClose() {
+        history.close();
+    }
+}
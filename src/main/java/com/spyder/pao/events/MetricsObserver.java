@@ -0,0 +1,33 @@
+package com.spyder.pao.events;
+
+import com.spyder.pao.jfr.QuizAnswerEvent;
+
+/**
+ * Emits a {@link QuizAnswerEvent} per answer or timeout, for flight recordings. Lossy, a recording missing a few answers
+ * is better than a quiz waiting on it.
+ */
+public class MetricsObserver implements QuizObserver {
+
+    @Override
+    public boolean isLossy() {
+        return true;
+    }
+
+    @Override
+    public void onEvent(QuizEvent event) {
+        if (event.kind != QuizEvent.Kind.ANSWER && event.kind != QuizEvent.Kind.TIMEOUT) {
+            return;
+        }
+        QuizAnswerEvent answerEvent = new QuizAnswerEvent();
+        if (answerEvent.shouldCommit()) {
+            answerEvent.entry = event.entry.getNumberStr();
+            answerEvent.answerType = event.answerType.name();
+            answerEvent.correct = event.correct;
+            answerEvent.timedOut = event.kind == QuizEvent.Kind.TIMEOUT;
+            answerEvent.hints = event.hintsShown;
+            answerEvent.latency = event.latencyNanos;
+            answerEvent.recall = event.recallNanos;
+            answerEvent.commit();
+        }
+    }
+}
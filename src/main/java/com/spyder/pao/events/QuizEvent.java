@@ -0,0 +1,64 @@
+package com.spyder.pao.events;
+
+import com.spyder.pao.model.EntryType;
+import com.spyder.pao.model.PaoEntry;
+
+/**
+ * One slot of the {@link QuizEventBus} ring buffer. Slots are allocated once and refilled for every event, so observers
+ * must copy anything they want to keep past {@link QuizObserver#onEvent(QuizEvent)}. Only the fields of the event's kind
+ * are set, the rest are left cleared.
+ */
+public class QuizEvent {
+
+    public Kind kind;
+    public PaoEntry entry;
+    public EntryType givenType;
+    public EntryType answerType;
+    // HINT: the partial answer shown
+    public String hint;
+    // ANSWER
+    public boolean correct;
+    public boolean exactlyCorrect;
+    public int hintsShown;
+    // ANSWER and TIMEOUT: time from the question being shown to Enter or the deadline
+    public long latencyNanos;
+    // ANSWER: time from the question being shown to the first keystroke, -1 if not timed
+    public long recallNanos;
+
+    void clear() {
+        kind = null;
+        entry = null;
+        givenType = null;
+        answerType = null;
+        hint = null;
+        correct = false;
+        exactlyCorrect = false;
+        hintsShown = 0;
+        latencyNanos = 0;
+        recallNanos = -1;
+    }
+
+    void copyFrom(QuizEvent event) {
+        kind = event.kind;
+        entry = event.entry;
+        givenType = event.givenType;
+        answerType = event.answerType;
+        hint = event.hint;
+        correct = event.correct;
+        exactlyCorrect = event.exactlyCorrect;
+        hintsShown = event.hintsShown;
+        latencyNanos = event.latencyNanos;
+        recallNanos = event.recallNanos;
+    }
+
+    public enum Kind {
+        // A question was asked
+        QUESTION,
+        // The user asked for a hint on the current question
+        HINT,
+        // The current question was answered and graded
+        ANSWER,
+        // The speed drill deadline passed before an answer was entered
+        TIMEOUT
+    }
+}
@@ -0,0 +1,225 @@
+package com.spyder.pao.events;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands quiz events from the quiz loop to observers running on their own threads, so printing and recording never hold
+ * up the next question.
+ * <p>
+ * Events live in a ring buffer of preallocated {@link QuizEvent} slots. There is a single producer, the quiz loop, which
+ * fills the next slot and publishes it by advancing a sequence number. Each observer follows with its own sequence,
+ * briefly polling for new events before it parks, so publishing only has to unpark the observers that ran out of
+ * events, ie while the prompt waits for an answer. A slot is only reused once every observer has moved past it; when the buffer is full the producer either waits for
+ * every observer or only for those that must see every event, see {@link Backpressure} and
+ * {@link QuizObserver#isLossy()}.
+ * <p>
+ * Not thread safe on the producer side: {@link #claim}, {@link #publish}, {@link #awaitDrained} and {@link #close} must
+ * all be called from the same thread.
+ */
+public class QuizEventBus implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    // Busy polls before an idle observer parks until the next publish
+    private static final int SPIN_TRIES = 100;
+
+    private final QuizEvent[] slots;
+    private final int mask;
+    // Last published sequence
+    private final AtomicLong published = new AtomicLong(-1);
+    // Last claimed sequence, lossy observers check it to tell whether a slot was refilled while they read it
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final List<ObserverThread> observers = new ArrayList<>();
+    // Observers the producer waits for, all but the lossy ones when the backpressure is DROP
+    private final List<ObserverThread> awaited = new ArrayList<>();
+    private volatile boolean running = true;
+    // Producer only
+    private long cachedMinConsumed = -1;
+
+    /**
+     * Starts a thread per observer.
+     *
+     * @param capacity slots in the ring buffer, rounded up to a power of 2
+     */
+    public QuizEventBus(int capacity, Backpressure backpressure, List<QuizObserver> observers) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new QuizEvent[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new QuizEvent();
+        }
+        mask = size - 1;
+        for (QuizObserver observer : observers) {
+            boolean skipsEvents = backpressure == Backpressure.DROP && observer.isLossy();
+            ObserverThread thread = new ObserverThread(observer, skipsEvents);
+            this.observers.add(thread);
+            if (!skipsEvents) {
+                awaited.add(thread);
+            }
+        }
+        this.observers.forEach(Thread::start);
+    }
+
+    /**
+     * Claims the next slot to fill in. Once filled, the event must be passed to {@link #publish} before claiming another.
+     * When the buffer is full, waits for the observers that must see every event.
+     */
+    public QuizEvent claim(QuizEvent.Kind kind) {
+        long next = claimed.get() + 1;
+        long wrapPoint = next - slots.length;
+        // Only look at the observers' sequences when the cached one says the slot may still be in use
+        if (wrapPoint > cachedMinConsumed) {
+            cachedMinConsumed = minConsumed();
+            while (wrapPoint > cachedMinConsumed) {
+                LockSupport.parkNanos(10_000);
+                cachedMinConsumed = minConsumed();
+            }
+        }
+        claimed.set(next);
+        // A lossy observer that sees any of the writes below also sees the claim
+        VarHandle.storeStoreFence();
+        QuizEvent event = slots[(int) next & mask];
+        event.clear();
+        event.kind = kind;
+        return event;
+    }
+
+    public void publish(QuizEvent event) {
+        published.set(claimed.get());
+        unparkIdle();
+    }
+
+    // An observer sets idle before its last look at the published sequence, so either it sees the new sequence or this
+    // sees it idle
+    private void unparkIdle() {
+        for (ObserverThread observer : observers) {
+            if (observer.idle) {
+                LockSupport.unpark(observer);
+            }
+        }
+    }
+
+    /**
+     * Waits until every observer that must see every event has handled every published event, ie before printing
+     * something that has to come after the observers' output.
+     */
+    public void awaitDrained() {
+        long last = published.get();
+        while (minConsumed() < last) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    /**
+     * Lets the observers handle the remaining events, then stops their threads.
+     */
+    @Override
+    public void close() {
+        awaitDrained();
+        running = false;
+        unparkIdle();
+        for (ObserverThread observer : observers) {
+            try {
+                observer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        for (ObserverThread observer : observers) {
+            // Written by the observer's thread, visible after join
+            if (observer.droppedEvents > 0) {
+                System.out.println("[WARN] " + observer.droppedEvents + " quiz events dropped, " + observer.getName() + " couldn't keep up");
+            }
+        }
+    }
+
+    private long minConsumed() {
+        long min = Long.MAX_VALUE;
+        for (ObserverThread observer : awaited) {
+            min = Math.min(min, observer.consumed.get());
+        }
+        return awaited.isEmpty() ? published.get() : min;
+    }
+
+    private class ObserverThread extends Thread {
+        private final QuizObserver observer;
+        // Whether the producer may refill slots this observer hasn't read yet
+        private final boolean skipsEvents;
+        // Events are copied here before handling when skipsEvents, so a slot refilled mid-read can be detected
+        private final QuizEvent copy = new QuizEvent();
+        // Last sequence handled
+        private final AtomicLong consumed = new AtomicLong(-1);
+        private long droppedEvents;
+        // Parked, or about to, until the next publish
+        private volatile boolean idle;
+
+        ObserverThread(QuizObserver observer, boolean skipsEvents) {
+            super("quiz-observer-" + observer.getClass().getSimpleName());
+            this.observer = observer;
+            this.skipsEvents = skipsEvents;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long next = 0;
+            int spins = 0;
+            while (true) {
+                // Read before the published sequence, so nothing published before stopping is missed
+                boolean stopping = !running;
+                long available = published.get();
+                if (next <= available) {
+                    for (; next <= available; next++) {
+                        QuizEvent event = skipsEvents ? copy(next) : slots[(int) next & mask];
+                        if (event == null) {
+                            droppedEvents++;
+                            continue;
+                        }
+                        try {
+                            observer.onEvent(event);
+                        } catch (RuntimeException e) {
+                            System.out.println("[WARN] " + getName() + " failed on " + event.kind + " - " + e);
+                        }
+                    }
+                    consumed.set(available);
+                    spins = 0;
+                } else if (stopping) {
+                    break;
+                } else if (++spins < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    idle = true;
+                    // Checked again after going idle, a publish or close before that wouldn't have unparked this
+                    if (running && published.get() < next) {
+                        LockSupport.park(this);
+                    }
+                    idle = false;
+                }
+            }
+            observer.onClose();
+        }
+
+        /**
+         * @return a copy of the event at the sequence, or null if the producer has already refilled its slot
+         */
+        private QuizEvent copy(long sequence) {
+            if (claimed.get() - sequence >= slots.length) {
+                return null;
+            }
+            copy.copyFrom(slots[(int) sequence & mask]);
+            // The claim is read after the copy, if the slot was refilled meanwhile the new claim is seen
+            VarHandle.loadLoadFence();
+            return claimed.get() - sequence >= slots.length ? null : copy;
+        }
+    }
+
+    public enum Backpressure {
+        // The quiz loop waits for the slowest observer, nothing is lost
+        BLOCK,
+        // The quiz loop doesn't wait for lossy observers, they miss the events they fall too far behind on
+        DROP
+    }
+}
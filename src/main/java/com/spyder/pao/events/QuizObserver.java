@@ -0,0 +1,23 @@
+package com.spyder.pao.events;
+
+/**
+ * Receives the events of a {@link QuizEventBus}, in publish order, on a thread of its own.
+ */
+public interface QuizObserver {
+
+    void onEvent(QuizEvent event);
+
+    /**
+     * Whether the observer can miss events, ie metrics. With {@link QuizEventBus.Backpressure#DROP} the quiz loop never
+     * waits for lossy observers, the others always see every event.
+     */
+    default boolean isLossy() {
+        return false;
+    }
+
+    /**
+     * Called on the observer's thread after its last event, when the bus is closed.
+     */
+    default void onClose() {
+    }
+}
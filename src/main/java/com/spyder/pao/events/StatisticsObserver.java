@@ -0,0 +1,24 @@
+package com.spyder.pao.events;
+
+import com.spyder.pao.model.QuizStatistics;
+
+/**
+ * Records answers and timeouts to the session's statistics.
+ */
+public class StatisticsObserver implements QuizObserver {
+
+    private final QuizStatistics stats;
+
+    public StatisticsObserver(QuizStatistics stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    public void onEvent(QuizEvent event) {
+        switch (event.kind) {
+            case ANSWER -> stats.recordAnswer(event.correct, event.latencyNanos, event.recallNanos);
+            case TIMEOUT -> stats.recordTimeout(event.latencyNanos);
+            default -> { }
+        }
+    }
+}
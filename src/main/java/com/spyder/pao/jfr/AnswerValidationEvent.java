@@ -0,0 +1,28 @@
+package com.spyder.pao.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.spyder.pao.AnswerValidation")
+@Label("Answer Validation")
+@Category("PAO")
+@Description("Grading one answer against the primary and alternate values of an entry")
+public class AnswerValidationEvent extends Event {
+
+    @Label("Answer Type")
+    public String answerType;
+
+    @Label("Alternates")
+    @Description("Distinct normalized possible answers checked, primary value included")
+    public int alternates;
+
+    @Label("Answer Tokens")
+    @Description("Words in the user's answer after normalization")
+    public int answerTokens;
+
+    @Label("Possible Answer Tokens")
+    @Description("Words across all possible answers, each answer word is compared against these")
+    public int possibleAnswerTokens;
+
+    @Label("Correct")
+    public boolean correct;
+}
@@ -0,0 +1,13 @@
+package com.spyder.pao.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.spyder.pao.DataFormat")
+@Label("Data Format")
+@Category("PAO")
+@Description("Aligning deck data into the data file format")
+public class DataFormatEvent extends Event {
+
+    @Label("Entries")
+    public int entries;
+}
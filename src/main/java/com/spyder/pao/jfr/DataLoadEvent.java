@@ -0,0 +1,13 @@
+package com.spyder.pao.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.spyder.pao.DataLoad")
+@Label("Data Load")
+@Category("PAO")
+@Description("Reading and parsing the deck data file")
+public class DataLoadEvent extends Event {
+
+    @Label("Entries")
+    public int entries;
+}
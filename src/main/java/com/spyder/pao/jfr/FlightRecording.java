@@ -0,0 +1,27 @@
+package com.spyder.pao.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.SneakyThrows;
+
+import java.nio.file.Path;
+
+/**
+ * Starts a JDK Flight Recorder recording that is written to a file when the program exits. The PAO events in this
+ * package are always compiled in but cost next to nothing unless a recording like this one is running.
+ */
+public class FlightRecording {
+
+    public static final String DEFAULT_FILE = "pao.jfr";
+
+    @SneakyThrows
+    public static void startDumpOnExit(Path destination) {
+        Recording recording = new Recording(Configuration.getConfiguration("default"));
+        recording.setName("PAO");
+        recording.setToDisk(true);
+        recording.setDumpOnExit(true);
+        recording.setDestination(destination);
+        recording.start();
+        System.out.println("Flight recording to " + destination.toAbsolutePath() + " on exit");
+    }
+}
@@ -0,0 +1,13 @@
+package com.spyder.pao.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.spyder.pao.GetEntries")
+@Label("Get Entries")
+@Category("PAO")
+@Description("Selecting the entries for a quiz or list")
+public class GetEntriesEvent extends Event {
+
+    @Label("Entries Returned")
+    public int entries;
+}
@@ -0,0 +1,13 @@
+package com.spyder.pao.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.spyder.pao.QuestionRender")
+@Label("Question Render")
+@Category("PAO")
+@Description("Printing the next quiz question, for the number and picture quizzes also choosing it")
+public class QuestionRenderEvent extends Event {
+
+    @Label("Quiz")
+    public String quiz;
+}
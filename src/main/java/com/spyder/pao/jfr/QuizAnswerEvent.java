@@ -0,0 +1,35 @@
+package com.spyder.pao.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.spyder.pao.QuizAnswer")
+@Label("Quiz Answer")
+@Category("PAO")
+@Description("One answered or timed out question of the given quiz")
+public class QuizAnswerEvent extends Event {
+
+    @Label("Entry")
+    public String entry;
+
+    @Label("Answer Type")
+    public String answerType;
+
+    @Label("Correct")
+    public boolean correct;
+
+    @Label("Timed Out")
+    public boolean timedOut;
+
+    @Label("Hints")
+    public int hints;
+
+    @Label("Latency")
+    @Description("Question shown to Enter pressed, or to the deadline")
+    @Timespan(Timespan.NANOSECONDS)
+    public long latency;
+
+    @Label("Recall")
+    @Description("Question shown to first keystroke, -1 if keystrokes weren't timed")
+    @Timespan(Timespan.NANOSECONDS)
+    public long recall;
+}
@@ -0,0 +1,17 @@
+package com.spyder.pao.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.spyder.pao.SheetsSync")
+@Label("Sheets Sync Step")
+@Category("PAO")
+@Description("One step of refreshing the data file from Google Sheets")
+public class SheetsSyncEvent extends Event {
+
+    @Label("Step")
+    @Description("auth, fetch or write")
+    public String step;
+
+    @Label("Range")
+    public String range;
+}
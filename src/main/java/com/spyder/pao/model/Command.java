@@ -10,12 +10,22 @@ public enum Command {
     EXIT("exit"),
     HELP("help"),
     LIST("list"),
+    FIND("find"),
     FROM("from"),
     TO("to"),
+    SELECT("select"),
+    ONLY("only"),
     QUIZ_TYPE("quiz"),
     GIVEN("given"),
     ANSWER("answer"),
     TIMER("timer"),
+    DRILL("drill"),
+    ORDER("order"),
+    SIMULATE("simulate"),
+    REPORT("report"),
+    LINT("lint"),
+    STATS("stats"),
+    HINT("hint"),
     BEGIN_QUIZ(new String[] {"begin", "b", "start"}),
     ;
 
@@ -0,0 +1,133 @@
+package com.spyder.pao.model;
+
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable set of entry numbers, written as ranges and single numbers like "0-9,40-49,63,77". Backed by a
+ * {@link BitSet} so combining selections is a few word operations even for decks with thousands of entries.
+ */
+public final class EntrySelection {
+
+    private final BitSet numbers;
+
+    private EntrySelection(BitSet numbers) {
+        this.numbers = numbers;
+    }
+
+    public static EntrySelection of(BitSet numbers) {
+        return new EntrySelection((BitSet) numbers.clone());
+    }
+
+    /**
+     * @return minEntry..maxEntry inclusive, empty if maxEntry is before minEntry
+     */
+    public static EntrySelection range(int minEntry, int maxEntry) {
+        BitSet numbers = new BitSet();
+        if (minEntry <= maxEntry) {
+            numbers.set(Math.max(0, minEntry), Math.max(0, maxEntry + 1));
+        }
+        return new EntrySelection(numbers);
+    }
+
+    /**
+     * Parses ranges and numbers separated by commas or spaces, ie "0-9 40-49 63".
+     *
+     * @param lastNumber highest number that can be selected, the deck's last entry
+     * @throws IllegalArgumentException if a part isn't a number or a range of them, or goes past lastNumber
+     */
+    public static EntrySelection parse(String spec, int lastNumber) {
+        BitSet numbers = new BitSet();
+        for (String part : spec.trim().split("[,\\s]+")) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            int dash = part.indexOf('-', 1);
+            try {
+                int from = Integer.parseInt(dash < 0 ? part : part.substring(0, dash));
+                int to = dash < 0 ? from : Integer.parseInt(part.substring(dash + 1));
+                if (from < 0 || to < from) {
+                    throw new IllegalArgumentException("Invalid range '" + part + "'");
+                }
+                if (to > lastNumber) {
+                    throw new IllegalArgumentException("'" + part + "' is past the last entry " + lastNumber);
+                }
+                numbers.set(from, to + 1);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid entry number or range '" + part + "'");
+            }
+        }
+        return new EntrySelection(numbers);
+    }
+
+    public EntrySelection union(EntrySelection other) {
+        BitSet result = (BitSet) numbers.clone();
+        result.or(other.numbers);
+        return new EntrySelection(result);
+    }
+
+    public EntrySelection intersect(EntrySelection other) {
+        BitSet result = (BitSet) numbers.clone();
+        result.and(other.numbers);
+        return new EntrySelection(result);
+    }
+
+    public boolean isEmpty() {
+        return numbers.isEmpty();
+    }
+
+    public int size() {
+        return numbers.cardinality();
+    }
+
+    /**
+     * @return lowest selected number, -1 if empty
+     */
+    public int first() {
+        return numbers.nextSetBit(0);
+    }
+
+    /**
+     * @return highest selected number, -1 if empty
+     */
+    public int last() {
+        return numbers.length() - 1;
+    }
+
+    /**
+     * @return selected numbers in ascending order
+     */
+    public IntStream numbers() {
+        return numbers.stream();
+    }
+
+    /**
+     * @return the selection in the form {@link #parse(String, int)} reads, with runs of numbers collapsed to ranges
+     */
+    @Override
+    public String toString() {
+        StringBuilder spec = new StringBuilder();
+        for (int from = numbers.nextSetBit(0); from >= 0; from = numbers.nextSetBit(from)) {
+            int to = numbers.nextClearBit(from) - 1;
+            if (!spec.isEmpty()) {
+                spec.append(',');
+            }
+            spec.append(from);
+            if (to > from) {
+                spec.append('-').append(to);
+            }
+            from = to + 1;
+        }
+        return spec.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof EntrySelection other && numbers.equals(other.numbers);
+    }
+
+    @Override
+    public int hashCode() {
+        return numbers.hashCode();
+    }
+}
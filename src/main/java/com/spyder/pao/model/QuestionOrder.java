@@ -0,0 +1,22 @@
+package com.spyder.pao.model;
+
+/**
+ * How the given quiz picks the next entry to ask about, see {@code QuestionScheduler}.
+ */
+public enum QuestionOrder {
+    // Every entry once in random order, then reshuffle
+    SHUFFLE,
+    // Random, with missed entries more likely to come up
+    WEIGHTED,
+    // Leitner boxes, entries answered right come back less and less often
+    SPACED
+    ;
+
+    public static QuestionOrder valueOfNullable(String value) {
+        try {
+            return QuestionOrder.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
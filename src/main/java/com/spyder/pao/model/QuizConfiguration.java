@@ -7,6 +7,42 @@ public class QuizConfiguration {
 
     private int minEntry = 0;
     private int maxEntry = 9;
+    // Entries to quiz on, the minEntry..maxEntry range unless set to something else with setSelection
+    private EntrySelection selection = EntrySelection.range(minEntry, maxEntry);
     private EntryType answerEntryType = EntryType.NUMBER;
     private EntryType givenEntryType = EntryType.PERSON;
+    private QuestionOrder order = QuestionOrder.SHUFFLE;
+
+    public void setMinEntry(int minEntry) {
+        this.minEntry = minEntry;
+        selection = EntrySelection.range(minEntry, maxEntry);
+    }
+
+    public void setMaxEntry(int maxEntry) {
+        this.maxEntry = maxEntry;
+        selection = EntrySelection.range(minEntry, maxEntry);
+    }
+
+    /**
+     * Sets the selection, with minEntry and maxEntry moved to its bounds.
+     */
+    public void setSelection(EntrySelection selection) {
+        this.selection = selection;
+        if (!selection.isEmpty()) {
+            minEntry = selection.first();
+            maxEntry = selection.last();
+        }
+    }
+
+    /**
+     * @return whether the selection is just the minEntry..maxEntry range
+     */
+    public boolean isRangeSelection() {
+        return selection.equals(EntrySelection.range(minEntry, maxEntry));
+    }
+
+    // "0..9" for a range selection, otherwise the selected ranges and numbers
+    public String describeSelection() {
+        return isRangeSelection() ? minEntry + ".." + maxEntry : selection.toString();
+    }
 }
@@ -1,44 +1,155 @@
 package com.spyder.pao.model;
 
-import lombok.Data;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
-@Data
+/**
+ * Answer counts for a quiz session. Counters are {@link LongAdder}s so the quiz loop never blocks on them, while
+ * another thread can read progress at any time through {@link #snapshot()}. Statistics created with a parent also add
+ * every answer to it, so one parent can collect the totals of several sessions, including ones running concurrently.
+ */
 public class QuizStatistics {
-    private int totalAnswers = 0;
-    private int correctAnswers = 0;
-    private long startTimeMillis;
-    private long endTimeMillis;
+    private final LongAdder totalAnswers = new LongAdder();
+    private final LongAdder correctAnswers = new LongAdder();
+    private final LongAdder timedOutAnswers = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    // Only answers where the first keystroke was timed, see recordAnswer(boolean, long, long)
+    private final LongAdder keyTimedAnswers = new LongAdder();
+    private final LongAdder totalRecallNanos = new LongAdder();
+    private final LongAdder totalTypingNanos = new LongAdder();
+    private final QuizStatistics parent;
+    // System.nanoTime() at which the session timer ends, only meaningful while timerRunning
+    private volatile long timerDeadlineNanos;
+    private volatile boolean timerRunning;
 
-    public void recordAnswer(boolean correct) {
-        totalAnswers++;
+    public QuizStatistics() {
+        this(null);
+    }
+
+    /**
+     * @param parent statistics to also record every answer to, may be null
+     */
+    public QuizStatistics(QuizStatistics parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * @param latencyNanos time from the question being shown to Enter being pressed
+     * @param recallNanos  time from the question being shown to the first keystroke, the rest of the latency is typing
+     *                     time. Negative if keystrokes weren't timed.
+     */
+    public void recordAnswer(boolean correct, long latencyNanos, long recallNanos) {
+        record(correct, false, latencyNanos, recallNanos);
+    }
+
+    // A speed drill question whose deadline passed before an answer was entered, counted as wrong
+    public void recordTimeout(long latencyNanos) {
+        record(false, true, latencyNanos, -1);
+    }
+
+    private void record(boolean correct, boolean timedOut, long latencyNanos, long recallNanos) {
+        // Total first, snapshot() reads it last so no other count can exceed it
+        totalAnswers.increment();
         if (correct) {
-            correctAnswers++;
+            correctAnswers.increment();
+        }
+        if (timedOut) {
+            timedOutAnswers.increment();
+        }
+        totalLatencyNanos.add(latencyNanos);
+        if (recallNanos >= 0) {
+            keyTimedAnswers.increment();
+            totalRecallNanos.add(recallNanos);
+            totalTypingNanos.add(Math.max(0, latencyNanos - recallNanos));
+        }
+        if (parent != null) {
+            parent.record(correct, timedOut, latencyNanos, recallNanos);
         }
     }
 
-    public void startTimer() {
-        startTimeMillis = System.currentTimeMillis();
+    /**
+     * Reads the current counts without blocking recording. Answers recorded while the snapshot is taken may be
+     * partially included, but correct and timed out answers never exceed the total.
+     */
+    public Snapshot snapshot() {
+        long typing = totalTypingNanos.sum();
+        long recall = totalRecallNanos.sum();
+        long keyTimed = keyTimedAnswers.sum();
+        long latency = totalLatencyNanos.sum();
+        long timedOut = timedOutAnswers.sum();
+        long correct = correctAnswers.sum();
+        long total = totalAnswers.sum();
+        return new Snapshot(total, correct, timedOut, latency, keyTimed, recall, typing);
     }
 
-    public void endTimer() {
-        endTimeMillis = System.currentTimeMillis();
+    public void startTimer(int timerMinutes) {
+        timerDeadlineNanos = System.nanoTime() + TimeUnit.MINUTES.toNanos(timerMinutes);
+        timerRunning = true;
     }
 
-    public boolean hasTimerExpired(int timerMinutes) {
-        if (timerMinutes <= 0) {
-            return false;
+    public boolean hasTimerExpired() {
+        return timerRunning && System.nanoTime() - timerDeadlineNanos >= 0;
+    }
+
+    /**
+     * Deadline for the answer to a question shown at promptNanos, whichever of the session timer or the
+     * per-question speed drill limit comes first.
+     *
+     * @param drillSeconds per-question limit, 0 for none
+     * @return {@link System#nanoTime()} value to stop waiting at, or Long.MAX_VALUE if there is no limit
+     */
+    public long answerDeadlineNanos(long promptNanos, int drillSeconds) {
+        long deadline = Long.MAX_VALUE;
+        if (drillSeconds > 0) {
+            deadline = promptNanos + TimeUnit.SECONDS.toNanos(drillSeconds);
+        }
+        if (timerRunning && (deadline == Long.MAX_VALUE || timerDeadlineNanos - deadline < 0)) {
+            deadline = timerDeadlineNanos;
         }
-        long elapsedMillis = System.currentTimeMillis() - startTimeMillis;
-        return elapsedMillis >= (timerMinutes * 60L * 1000L);
+        return deadline;
     }
 
     public void printSummary() {
         System.out.println(System.lineSeparator() + "Time's up!");
-        if(correctAnswers > 0) {
-            System.out.printf("%d correct out of %d total answers%n", correctAnswers, totalAnswers);
-        } else {
-            System.out.printf("%s questions answered", totalAnswers);
+        snapshot().print();
+    }
+
+    /**
+     * @param keyTimedAnswers  answers whose first keystroke was timed, recall and typing totals cover only these
+     * @param totalRecallNanos time from question to first keystroke, summed
+     * @param totalTypingNanos time from first keystroke to Enter, summed
+     */
+    public record Snapshot(long totalAnswers, long correctAnswers, long timedOutAnswers, long totalLatencyNanos,
+                           long keyTimedAnswers, long totalRecallNanos, long totalTypingNanos) {
+
+        public double averageLatencySeconds() {
+            return totalAnswers == 0 ? 0 : totalLatencyNanos / (double) totalAnswers / 1_000_000_000.0;
+        }
+
+        public double averageRecallSeconds() {
+            return keyTimedAnswers == 0 ? 0 : totalRecallNanos / (double) keyTimedAnswers / 1_000_000_000.0;
+        }
+
+        public double averageTypingSeconds() {
+            return keyTimedAnswers == 0 ? 0 : totalTypingNanos / (double) keyTimedAnswers / 1_000_000_000.0;
+        }
+
+        public void print() {
+            if(correctAnswers > 0) {
+                System.out.printf("%d correct out of %d total answers%n", correctAnswers, totalAnswers);
+            } else {
+                System.out.printf("%s questions answered", totalAnswers);
+            }
+            if (timedOutAnswers > 0) {
+                System.out.printf("%n%d ran out of time", timedOutAnswers);
+            }
+            if (totalAnswers > 0 && totalLatencyNanos > 0) {
+                System.out.printf("%nAverage answer time %.2fs", averageLatencySeconds());
+            }
+            if (keyTimedAnswers > 0) {
+                System.out.printf("%nAverage time to first key %.2fs, typing %.2fs", averageRecallSeconds(), averageTypingSeconds());
+            }
+            System.out.println();
         }
-        System.out.println();
     }
 }
@@ -0,0 +1,196 @@
+package com.spyder.pao;
+
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.spyder.pao.SheetsConfig.SheetsDeck;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the fetcher against a local stand-in for the Sheets API, which answers batchGet requests with the ranges asked
+ * for and can be told to fail the next few requests with a given status. Waits between retries are recorded rather than
+ * slept.
+ */
+class GoogleSheetsDataFetcherTest {
+
+    private static final SheetsDeck PAO = new SheetsDeck("pao", "sheet-a", "B2", "pao.txt");
+    private static final SheetsDeck MAJOR = new SheetsDeck("major", "sheet-a", "C3", "major.txt");
+    private static final SheetsDeck CARDS = new SheetsDeck("cards", "sheet-b", "B2", "cards.txt");
+
+    private HttpServer server;
+    private String rootUrl;
+    // Path and query of every request received
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    // Failures for the next requests, in order
+    private final Deque<Failure> failures = new ArrayDeque<>();
+    // Each wait between retries, in millis
+    private final List<Long> sleeps = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        rootUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void fetchesEachSpreadsheetsRangesInOneBatchGet() throws IOException {
+        GoogleSheetsDataFetcher fetcher = fetcher(PAO, CARDS, MAJOR);
+
+        Map<SheetsDeck, String> rawData = fetcher.fetchAll();
+
+        assertEquals(List.of(PAO, CARDS, MAJOR), List.copyOf(rawData.keySet()));
+        assertEquals("sheet-a B2", rawData.get(PAO));
+        assertEquals("sheet-a C3", rawData.get(MAJOR));
+        assertEquals("sheet-b B2", rawData.get(CARDS));
+        assertEquals(2, requests.size(), requests.toString());
+        assertTrue(requests.contains("/v4/spreadsheets/sheet-a/values:batchGet?ranges=B2&ranges=C3"), requests.toString());
+        assertTrue(requests.contains("/v4/spreadsheets/sheet-b/values:batchGet?ranges=B2"), requests.toString());
+    }
+
+    @Test
+    void fetchReturnsTheFirstDeck() throws IOException {
+        assertEquals("sheet-b B2", fetcher(CARDS, PAO).fetch());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void retriesServerErrorsAndRateLimits() throws IOException {
+        failures.add(new Failure(503, true));
+        failures.add(new Failure(429, false));
+
+        assertEquals("sheet-a B2", fetcher(PAO).fetch());
+        assertEquals(3, requests.size());
+        assertBackoff(2);
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        for (int i = 0; i < 4; i++) {
+            failures.add(new Failure(500, i % 2 == 0));
+        }
+
+        HttpResponseException e = assertThrows(HttpResponseException.class, () -> fetcher(PAO).fetch());
+        assertEquals(500, e.getStatusCode());
+        assertEquals(4, requests.size());
+        assertBackoff(3);
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        for (int status : new int[] {400, 401, 403, 404}) {
+            // Plain text errors, ie from a proxy, aren't retried either
+            for (boolean json : new boolean[] {true, false}) {
+                requests.clear();
+                failures.add(new Failure(status, json));
+
+                HttpResponseException e = assertThrows(HttpResponseException.class, () -> fetcher(PAO).fetch());
+                assertEquals(status, e.getStatusCode());
+                assertEquals(1, requests.size(), "status " + status + (json ? " json" : " text"));
+            }
+        }
+        assertEquals(List.of(), sleeps);
+    }
+
+    @Test
+    void retriesOnlyRateLimitsServerErrorsAndNetworkFailures() {
+        for (int status : new int[] {429, 500, 502, 503}) {
+            assertTrue(GoogleSheetsDataFetcher.isRetryable(httpError(status)), "status " + status);
+        }
+        for (int status : new int[] {400, 401, 403, 404, 409}) {
+            assertFalse(GoogleSheetsDataFetcher.isRetryable(httpError(status)), "status " + status);
+        }
+        assertTrue(GoogleSheetsDataFetcher.isRetryable(new ConnectException("Connection refused")));
+    }
+
+    @Test
+    void emptyCellFails() {
+        IOException e = assertThrows(IOException.class,
+                () -> fetcher(new SheetsDeck("empty", "sheet-a", "EMPTY", "empty.txt")).fetch());
+        assertEquals("Cell EMPTY is empty", e.getMessage());
+    }
+
+    private GoogleSheetsDataFetcher fetcher(SheetsDeck... decks) {
+        return new GoogleSheetsDataFetcher(rootUrl, List.of(decks), sleeps::add);
+    }
+
+    // Waits start at 250-500 ms and double after each retry
+    private void assertBackoff(int retries) {
+        assertEquals(retries, sleeps.size(), sleeps.toString());
+        for (int i = 0; i < retries; i++) {
+            long max = 500L << i;
+            assertTrue(sleeps.get(i) >= max / 2 && sleeps.get(i) <= max, sleeps.toString());
+        }
+    }
+
+    private static HttpResponseException httpError(int status) {
+        return new HttpResponseException.Builder(status, "stand-in failure", new HttpHeaders()).build();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        requests.add(path + "?" + query);
+        Failure failure;
+        synchronized (failures) {
+            failure = failures.poll();
+        }
+        if (failure != null) {
+            if (failure.json()) {
+                respond(exchange, failure.status(), "application/json", "{\"error\": {\"code\": " + failure.status() + ", \"message\": \"stand-in failure\"}}");
+            } else {
+                respond(exchange, failure.status(), "text/plain", "stand-in failure");
+            }
+            return;
+        }
+        // /v4/spreadsheets/{id}/values:batchGet, each range's single cell holds "{id} {range}"
+        String spreadsheetId = path.split("/")[3];
+        StringBuilder valueRanges = new StringBuilder();
+        for (String param : query.split("&")) {
+            String range = param.substring("ranges=".length());
+            if (!valueRanges.isEmpty()) {
+                valueRanges.append(',');
+            }
+            valueRanges.append("{\"range\": \"").append(range).append('"');
+            if (!range.equals("EMPTY")) {
+                valueRanges.append(", \"values\": [[\"").append(spreadsheetId).append(' ').append(range).append("\"]]");
+            }
+            valueRanges.append('}');
+        }
+        respond(exchange, 200, "application/json", "{\"spreadsheetId\": \"" + spreadsheetId + "\", \"valueRanges\": [" + valueRanges + "]}");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType + "; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private record Failure(int status, boolean json) {
+    }
+}
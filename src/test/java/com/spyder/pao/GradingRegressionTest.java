@@ -0,0 +1,497 @@
+package com.spyder.pao;
+
+import com.spyder.pao.model.EntryType;
+import com.spyder.pao.model.PaoEntry;
+import com.spyder.pao.model.QuestionContext;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Regression checks for answer grading, {@link GivenQuiz#validateAnswer} and the {@link AnswerMatcher} rules behind it:
+ * <ul>
+ * <li>Golden corpus: answers generated from a snapshot of the deck, each saved with the verdict it got when the corpus
+ * was written. Any verdict that changes fails. After an intended change, regenerate with
+ * {@code mvn test -Dtest=GradingRegressionTest#updateCorpus -Dgrading.update=true} and review the diff. The deck
+ * snapshot is kept next to the corpus, so syncing the deck doesn't break it, along with hand written rows for cases the
+ * deck doesn't have.</li>
+ * <li>Fuzzing: seeded random typos and rewordings of deck values, graded and compared with {@link Rules}, a plain
+ * restatement of the rules that shares no code with the quiz's grading.</li>
+ * <li>Throughput: the average time to grade an answer of the corpus has to stay within a budget. Wall clock time
+ * depends on the machine and its load, so this only runs with {@code -Dgrading.benchmark=true}.</li>
+ * </ul>
+ * The seed and number of fuzzed answers can be changed with -Dgrading.seed and -Dgrading.fuzz.
+ */
+class GradingRegressionTest {
+
+    private static final Path CORPUS_DIR = Path.of("src/test/resources/grading");
+    private static final String DECK_FILE = "grading-deck.txt";
+    private static final String GOLDEN_FILE = "grading-golden.tsv";
+    private static final String EXTRA_ROWS_FILE = "grading-extra-rows.txt";
+    private static final long SEED = Long.getLong("grading.seed", 20261019);
+    private static final int FUZZ_CASES = Integer.getInteger("grading.fuzz", 20_000);
+    // Average per graded answer. Grading takes a few microseconds, this leaves room for slow build machines.
+    private static final long BUDGET_NANOS_PER_ANSWER = 100_000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int TIMED_ROUNDS = 10;
+    // Mismatches listed in a failure, the rest are only counted
+    private static final int MAX_REPORTED = 20;
+    private static final List<EntryType> ANSWER_TYPES = Arrays.asList(EntryType.NUMBER, EntryType.PERSON, EntryType.ACTION, EntryType.OBJECT);
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    private static DataSource deck;
+    private static List<PaoEntry> entries;
+    private static List<GoldenCase> goldenCases;
+    private static Rules rules;
+
+    @BeforeAll
+    static void loadCorpus() throws IOException {
+        if (Boolean.getBoolean("grading.update")) {
+            return;
+        }
+        deck = DataSource.createAndLoad(CORPUS_DIR.resolve(DECK_FILE));
+        entries = deck.getEntries();
+        goldenCases = new ArrayList<>();
+        for (String line : Files.readAllLines(CORPUS_DIR.resolve(GOLDEN_FILE))) {
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                goldenCases.add(GoldenCase.parse(line));
+            }
+        }
+        rules = Rules.load();
+    }
+
+    /**
+     * Snapshots the deck and writes the golden corpus with the verdicts grading gives right now.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "grading.update", matches = "true")
+    void updateCorpus() throws IOException {
+        Path deckFile = CORPUS_DIR.resolve(DECK_FILE);
+        Files.createDirectories(CORPUS_DIR);
+        Files.copy(Path.of(SheetsConfig.DATA_FILE_PATH), deckFile, StandardCopyOption.REPLACE_EXISTING);
+        List<String> extraRows = Files.readAllLines(CORPUS_DIR.resolve(EXTRA_ROWS_FILE)).stream()
+                .filter(line -> !line.isBlank() && !line.startsWith("#"))
+                .toList();
+        Files.write(deckFile, extraRows, StandardOpenOption.APPEND);
+        deck = DataSource.createAndLoad(deckFile);
+        entries = deck.getEntries();
+        List<GoldenCase> cases = generateCases(new SplittableRandom(SEED));
+        try (BufferedWriter writer = Files.newBufferedWriter(CORPUS_DIR.resolve(GOLDEN_FILE))) {
+            writer.write("# Answer grading verdicts for " + DECK_FILE + ", regenerate with GradingRegressionTest#updateCorpus");
+            writer.newLine();
+            writer.write("# number\tanswer type\tanswer\tcorrect\texactly correct");
+            writer.newLine();
+            for (GoldenCase golden : cases) {
+                writer.write(golden.toLine());
+                writer.newLine();
+            }
+        }
+        System.out.println("✓ Wrote " + cases.size() + " golden cases to " + CORPUS_DIR.resolve(GOLDEN_FILE));
+    }
+
+    @Test
+    void goldenVerdictsMatch() {
+        assertFalse(goldenCases.isEmpty(), "No golden cases in " + GOLDEN_FILE);
+        Map<String, PaoEntry> entriesByNumber = new HashMap<>();
+        entries.forEach(entry -> entriesByNumber.put(entry.getNumberStr(), entry));
+        Mismatches mismatches = new Mismatches();
+        for (GoldenCase golden : goldenCases) {
+            PaoEntry entry = entriesByNumber.get(golden.number());
+            if (entry == null) {
+                mismatches.add("No entry " + golden.number() + " in " + DECK_FILE);
+                continue;
+            }
+            QuestionContext graded = grade(entry, golden.answerType(), golden.answer());
+            if (graded.isCorrect() != golden.correct() || graded.isExactlyCorrect() != golden.exactlyCorrect()) {
+                mismatches.add(String.format("%s %s '%s' was %s, now %s", golden.number(), golden.answerType(), golden.answer(),
+                        verdict(golden.correct(), golden.exactlyCorrect()), verdict(graded.isCorrect(), graded.isExactlyCorrect())));
+            }
+        }
+        mismatches.assertNone("golden verdicts changed");
+    }
+
+    @Test
+    void fuzzedAnswersAgreeWithTheRules() {
+        SplittableRandom random = new SplittableRandom(SEED);
+        Mismatches mismatches = new Mismatches();
+        for (int i = 0; i < FUZZ_CASES; i++) {
+            PaoEntry entry = entries.get(random.nextInt(entries.size()));
+            EntryType answerType = ANSWER_TYPES.get(random.nextInt(ANSWER_TYPES.size()));
+            // Mostly this entry's values, sometimes another's so there are wrong answers to grade too
+            PaoEntry source = random.nextInt(8) == 0 ? entries.get(random.nextInt(entries.size())) : entry;
+            List<String> values = source.getAllByType(answerType);
+            String answer = mutate(values.get(random.nextInt(values.size())), random.nextInt(4), random);
+
+            QuestionContext graded = grade(entry, answerType, answer);
+            boolean correct = rules.isCorrect(entry, answerType, answer);
+            boolean exactlyCorrect = rules.isExactlyCorrect(entry, answerType, answer);
+            if (graded.isCorrect() != correct || graded.isExactlyCorrect() != exactlyCorrect) {
+                mismatches.add(String.format("%s %s '%s' graded %s, rules say %s", entry.getNumberStr(), answerType, answer,
+                        verdict(graded.isCorrect(), graded.isExactlyCorrect()), verdict(correct, exactlyCorrect)));
+            }
+        }
+        mismatches.assertNone("fuzzed answers disagree with the rules, seed " + SEED);
+    }
+
+    @Test
+    void wordClosenessAgreesWithEditDistance() {
+        SplittableRandom random = new SplittableRandom(SEED);
+        Mismatches mismatches = new Mismatches();
+        for (int i = 0; i < FUZZ_CASES; i++) {
+            // Against a typo of the word or any other word
+            String word = randomWord(random);
+            String other = random.nextBoolean() ? typo(word, random) : randomWord(random);
+            int distance = Rules.editDistance(word.toLowerCase(), other.toLowerCase());
+            if (AnswerMatcher.isWordCloseEnough(word, other) != (distance <= 1)) {
+                mismatches.add(String.format("isWordCloseEnough('%s', '%s') disagrees with edit distance %d", word, other, distance));
+            }
+        }
+        mismatches.assertNone("word pairs disagree with edit distance, seed " + SEED);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "grading.benchmark", matches = "true")
+    void gradingStaysWithinBudget() {
+        Map<String, PaoEntry> entriesByNumber = new HashMap<>();
+        entries.forEach(entry -> entriesByNumber.put(entry.getNumberStr(), entry));
+        List<PaoEntry> caseEntries = goldenCases.stream().map(golden -> entriesByNumber.get(golden.number())).toList();
+        int correct = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            correct += gradeAll(caseEntries);
+        }
+        long start = System.nanoTime();
+        for (int round = 0; round < TIMED_ROUNDS; round++) {
+            correct += gradeAll(caseEntries);
+        }
+        long nanosPerAnswer = (System.nanoTime() - start) / Math.max(1, (long) TIMED_ROUNDS * goldenCases.size());
+        // Checking the count keeps the grading from being optimized away
+        assertTrue(correct > 0);
+        assertTrue(nanosPerAnswer <= BUDGET_NANOS_PER_ANSWER, String.format("Grading took %.1f µs per answer, budget is %.1f µs",
+                nanosPerAnswer / 1000.0, BUDGET_NANOS_PER_ANSWER / 1000.0));
+    }
+
+    private static int gradeAll(List<PaoEntry> caseEntries) {
+        int correct = 0;
+        for (int i = 0; i < goldenCases.size(); i++) {
+            GoldenCase golden = goldenCases.get(i);
+            if (caseEntries.get(i) != null && grade(caseEntries.get(i), golden.answerType(), golden.answer()).isCorrect()) {
+                correct++;
+            }
+        }
+        return correct;
+    }
+
+    // Same as a question in the given quiz
+    private static QuestionContext grade(PaoEntry entry, EntryType answerType, String answer) {
+        QuestionContext questionContext = new QuestionContext();
+        questionContext.setCorrectAnswer(entry.getValue(answerType));
+        questionContext.setEntry(answerType, entry);
+        questionContext.setUserAnswerText(answer);
+        GivenQuiz.validateAnswer(questionContext, answerType, deck.getAnswerAutomaton(answerType));
+        return questionContext;
+    }
+
+    /**
+     * Answers worth pinning for every entry and answer type: each value as is, and the ways it is commonly mistyped or
+     * reworded.
+     */
+    private static List<GoldenCase> generateCases(SplittableRandom random) {
+        List<GoldenCase> cases = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            PaoEntry entry = entries.get(i);
+            PaoEntry next = entries.get((i + 1) % entries.size());
+            for (EntryType answerType : ANSWER_TYPES) {
+                String primary = entry.getValue(answerType);
+                Set<String> answers = new LinkedHashSet<>(entry.getAllByType(answerType));
+                answers.add(primary.toUpperCase());
+                answers.add(typo(primary, random));
+                answers.add(typo(primary, random));
+                answers.add(next.getValue(answerType));
+                answers.add("");
+                if (answerType != EntryType.NUMBER) {
+                    answers.add(entry.getNumberStr() + " " + primary);
+                    answers.add(next.getNumberStr() + " " + primary);
+                    answers.add("the " + primary);
+                    answers.add(primary + " " + primary.split(" ")[0]);
+                    answers.add(primary.contains(" ") ? primary.substring(0, primary.lastIndexOf(' ')) : primary + "s");
+                }
+                for (String answer : answers) {
+                    // Tabs and line breaks would break the corpus format, and can't be typed as an answer anyway
+                    if (answer.indexOf('\t') < 0 && answer.indexOf('\n') < 0) {
+                        QuestionContext graded = grade(entry, answerType, answer);
+                        cases.add(new GoldenCase(entry.getNumberStr(), answerType, answer, graded.isCorrect(), graded.isExactlyCorrect()));
+                    }
+                }
+            }
+        }
+        return cases;
+    }
+
+    /**
+     * Applies a number of random changes a user might make: typos, case, dropped or repeated words, articles and entry
+     * numbers.
+     */
+    private static String mutate(String answer, int changes, SplittableRandom random) {
+        for (int i = 0; i < changes; i++) {
+            String[] words = answer.split(" ");
+            answer = switch (random.nextInt(8)) {
+                case 0, 1, 2 -> typo(answer, random);
+                case 3 -> answer.toUpperCase();
+                case 4 -> words.length > 1 ? String.join(" ", Arrays.copyOf(words, words.length - 1)) : answer;
+                case 5 -> words.length > 0 ? answer + " " + words[random.nextInt(words.length)] : answer;
+                case 6 -> (random.nextBoolean() ? "the " : "a ") + answer;
+                default -> entries.get(random.nextInt(entries.size())).getNumberStr() + " " + answer;
+            };
+        }
+        return answer;
+    }
+
+    // One character substituted, inserted, deleted, or two swapped
+    private static String typo(String answer, SplittableRandom random) {
+        if (answer.isEmpty()) {
+            return String.valueOf(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+        StringBuilder typo = new StringBuilder(answer);
+        int at = random.nextInt(answer.length());
+        char letter = LETTERS.charAt(random.nextInt(LETTERS.length()));
+        switch (random.nextInt(4)) {
+            case 0 -> typo.setCharAt(at, letter);
+            case 1 -> typo.insert(at, letter);
+            case 2 -> typo.deleteCharAt(at);
+            default -> {
+                if (at + 1 < typo.length()) {
+                    typo.setCharAt(at, answer.charAt(at + 1));
+                    typo.setCharAt(at + 1, answer.charAt(at));
+                }
+            }
+        }
+        return typo.toString();
+    }
+
+    private static String randomWord(SplittableRandom random) {
+        PaoEntry entry = entries.get(random.nextInt(entries.size()));
+        String[] words = entry.getValue(ANSWER_TYPES.get(random.nextInt(ANSWER_TYPES.size()))).split(" ");
+        return words[random.nextInt(words.length)];
+    }
+
+    private static String verdict(boolean correct, boolean exactlyCorrect) {
+        return exactlyCorrect ? "exact" : correct ? "correct" : "wrong";
+    }
+
+    /**
+     * The grading rules written out as plainly as possible from the documented behavior, with none of the quiz's
+     * grading code: no {@link AnswerNormalizer}, {@link AnswerAutomaton} or {@link AnswerMatcher}. The word lists are
+     * read straight from {@value AnswerNormalizer#CONFIG_FILE}.
+     * <ol>
+     * <li>An answer may start with an entry number, which then has to be the entry's. For anything but a NUMBER
+     * question the rest of the answer is what gets graded.</li>
+     * <li>Both the answer and every value of the entry are reduced to canonical words: lower case, split on spaces,
+     * stopwords dropped unless nothing else is left, suffixes stemmed, synonyms replaced. A blank value has no words and
+     * isn't a form any answer can match.</li>
+     * <li>Correct when the answer's words are one of the value's, or close to the value that matches the most answer
+     * words, fewest wrong words breaking ties. Words are close within an edit distance of 1, and one wrong word is
+     * allowed when that value has more than 2 words.</li>
+     * <li>Exactly correct when the graded text is the primary value, ignoring case.</li>
+     * </ol>
+     */
+    private record Rules(List<String> steps, Set<String> stopwords, Map<String, String> synonyms) {
+
+        private static final Pattern LEADING_NUMBER = Pattern.compile("(\\d+)(?: (.*))?", Pattern.DOTALL);
+        // Stemming of words longer than 3 letters, in order: plurals, then verb endings, then a silent e
+        private static final Pattern PLURAL_IES = Pattern.compile(".{2,}ies", Pattern.DOTALL);
+        private static final Pattern PLURAL_SSES = Pattern.compile(".*sses", Pattern.DOTALL);
+        private static final Pattern PLURAL_S = Pattern.compile(".*[^sui]s", Pattern.DOTALL);
+        private static final Pattern VERB_ING = Pattern.compile(".{3,}ing", Pattern.DOTALL);
+        private static final Pattern VERB_ED = Pattern.compile(".{2,}[^e]ed", Pattern.DOTALL);
+        private static final Pattern SILENT_E = Pattern.compile(".{3,}e", Pattern.DOTALL);
+        // A doubled final consonant left by a verb ending, ie runn, but not fall, kiss or fizz
+        private static final Pattern DOUBLED = Pattern.compile(".{2,}([^aeiouylsz])\\1", Pattern.DOTALL);
+
+        static Rules load() throws IOException {
+            Properties properties = new Properties();
+            try (InputStream in = Rules.class.getResourceAsStream("/" + AnswerNormalizer.CONFIG_FILE)) {
+                properties.load(Objects.requireNonNull(in, AnswerNormalizer.CONFIG_FILE));
+            }
+            List<String> steps = words(properties.getProperty("steps", ""));
+            Map<String, String> synonyms = new HashMap<>();
+            for (String key : properties.stringPropertyNames()) {
+                if (key.startsWith("synonym.")) {
+                    String canonical = key.substring("synonym.".length()).toLowerCase();
+                    for (String synonym : words(properties.getProperty(key))) {
+                        synonyms.put(stem(synonym), stem(canonical));
+                    }
+                }
+            }
+            return new Rules(steps, new HashSet<>(words(properties.getProperty("stopwords", ""))), synonyms);
+        }
+
+        private static List<String> words(String commaSeparated) {
+            List<String> words = new ArrayList<>();
+            for (String word : commaSeparated.toLowerCase().split(",")) {
+                if (!word.isBlank()) {
+                    words.add(word.trim());
+                }
+            }
+            return words;
+        }
+
+        boolean isCorrect(PaoEntry entry, EntryType answerType, String answer) {
+            Matcher number = LEADING_NUMBER.matcher(answer);
+            if (number.matches() && !number.group(1).equals(entry.getNumberStr())) {
+                return false;
+            }
+            String answerForm = canonical(gradedText(answerType, answer));
+            List<String> valueForms = new ArrayList<>();
+            for (String value : entry.getAllByType(answerType)) {
+                if (!canonical(value).isEmpty() && !valueForms.contains(canonical(value))) {
+                    valueForms.add(canonical(value));
+                }
+            }
+            if (valueForms.contains(answerForm)) {
+                return true;
+            }
+            // An empty answer still counts as one (empty) word, as the quiz splits it
+            List<String> answerWords = Arrays.asList(answerForm.split(" "));
+            record Score(int matched, int wrong, int valueWords) {
+            }
+            Optional<Score> best = valueForms.stream()
+                    .map(form -> {
+                        List<String> valueWords = Arrays.asList(form.split(" "));
+                        int matched = (int) answerWords.stream()
+                                .filter(word -> valueWords.stream().anyMatch(valueWord -> editDistance(word, valueWord) <= 1))
+                                .count();
+                        return new Score(matched, Math.max(answerWords.size(), valueWords.size()) - matched, valueWords.size());
+                    })
+                    // The first of equally good values wins
+                    .min(Comparator.comparingInt(Score::matched).reversed().thenComparingInt(Score::wrong));
+            return best.isPresent() && best.get().wrong() <= (best.get().valueWords() > 2 ? 1 : 0);
+        }
+
+        boolean isExactlyCorrect(PaoEntry entry, EntryType answerType, String answer) {
+            return gradedText(answerType, answer).equalsIgnoreCase(entry.getAllByType(answerType).getFirst());
+        }
+
+        // The answer without a leading number, unless it's a NUMBER question or nothing would be left
+        private static String gradedText(EntryType answerType, String answer) {
+            Matcher number = LEADING_NUMBER.matcher(answer);
+            if (answerType == EntryType.NUMBER || !number.matches() || number.group(2) == null) {
+                return answer;
+            }
+            // Trailing spaces don't count as words
+            String rest = number.group(2).replaceAll(" +$", "");
+            return rest.isEmpty() ? answer : rest;
+        }
+
+        private String canonical(String text) {
+            List<String> words = new ArrayList<>();
+            for (String word : text.toLowerCase().split(" +")) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+            for (String step : steps) {
+                switch (step) {
+                    case "stopwords" -> {
+                        List<String> kept = words.stream().filter(word -> !stopwords.contains(word)).toList();
+                        if (!kept.isEmpty()) {
+                            words = new ArrayList<>(kept);
+                        }
+                    }
+                    case "stem" -> words.replaceAll(Rules::stem);
+                    case "synonyms" -> words.replaceAll(word -> synonyms.getOrDefault(word, word));
+                    default -> fail("Unknown normalization step " + step);
+                }
+            }
+            return String.join(" ", words);
+        }
+
+        private static String stem(String word) {
+            if (word.length() <= 3) {
+                return word;
+            }
+            String stem = word;
+            if (PLURAL_IES.matcher(stem).matches()) {
+                stem = stem.substring(0, stem.length() - 3) + "y";
+            } else if (PLURAL_SSES.matcher(stem).matches()) {
+                stem = stem.substring(0, stem.length() - 2);
+            } else if (PLURAL_S.matcher(stem).matches()) {
+                stem = stem.substring(0, stem.length() - 1);
+            }
+            if (VERB_ING.matcher(stem).matches()) {
+                stem = undouble(stem.substring(0, stem.length() - 3));
+            } else if (VERB_ED.matcher(stem).matches()) {
+                stem = undouble(stem.substring(0, stem.length() - 2));
+            }
+            if (SILENT_E.matcher(stem).matches()) {
+                stem = stem.substring(0, stem.length() - 1);
+            }
+            return stem;
+        }
+
+        private static String undouble(String stem) {
+            return DOUBLED.matcher(stem).matches() ? stem.substring(0, stem.length() - 1) : stem;
+        }
+
+        // Levenshtein distance, the textbook dynamic programming version
+        static int editDistance(String a, String b) {
+            int[][] distance = new int[a.length() + 1][b.length() + 1];
+            for (int i = 0; i <= a.length(); i++) {
+                for (int j = 0; j <= b.length(); j++) {
+                    if (i == 0 || j == 0) {
+                        distance[i][j] = i + j;
+                    } else {
+                        int substitution = distance[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                        distance[i][j] = Math.min(substitution, Math.min(distance[i - 1][j], distance[i][j - 1]) + 1);
+                    }
+                }
+            }
+            return distance[a.length()][b.length()];
+        }
+    }
+
+    private static class Mismatches {
+        private final List<String> reported = new ArrayList<>();
+        private int count;
+
+        void add(String message) {
+            if (++count <= MAX_REPORTED) {
+                reported.add(message);
+            }
+        }
+
+        void assertNone(String what) {
+            if (count > 0) {
+                fail(count + " " + what + (count > MAX_REPORTED ? ", first " + MAX_REPORTED : "") + ":"
+                        + System.lineSeparator() + String.join(System.lineSeparator(), reported));
+            }
+        }
+    }
+
+    /**
+     * One line of the golden corpus.
+     */
+    private record GoldenCase(String number, EntryType answerType, String answer, boolean correct, boolean exactlyCorrect) {
+
+        static GoldenCase parse(String line) {
+            String[] fields = line.split("\t", -1);
+            return new GoldenCase(fields[0], EntryType.valueOf(fields[1]), fields[2], Boolean.parseBoolean(fields[3]), Boolean.parseBoolean(fields[4]));
+        }
+
+        String toLine() {
+            return String.join("\t", number, answerType.name(), answer, String.valueOf(correct), String.valueOf(exactlyCorrect));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.spyder.pao;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportGeneratorTest {
+
+    // 2026-10-19, midday so it's the same day in any time zone
+    private static final long DAY_MILLIS = 1_792_411_200_000L;
+
+    @Test
+    void skipsLinesWithEntryNumbersOutOfRange(@TempDir Path dir) throws IOException {
+        Path historyDir = Files.createDirectories(dir.resolve("history"));
+        Files.write(historyDir.resolve("2026-10-19.csv"), List.of(
+                DAY_MILLIS + ",3,PERSON,NUMBER,true,true,1500000",
+                DAY_MILLIS + ",2147483647,PERSON,NUMBER,true,true,1500000",
+                DAY_MILLIS + ",1999999999,PERSON,NUMBER,false,false,1500000",
+                DAY_MILLIS + ",-1,PERSON,NUMBER,false,false,1500000",
+                DAY_MILLIS + ",3,PERSON,OBJECT,false,false,2500000"));
+        Path reportDir = dir.resolve("reports");
+
+        ReportGenerator.generate(historyDir, reportDir);
+
+        assertEquals(List.of("entry,answers,correct,accuracy", "3,2,1,50.0"), Files.readAllLines(reportDir.resolve("entries.csv")));
+        assertEquals(List.of("answerType,answers,correct,accuracy", "NUMBER,1,1,100.0", "OBJECT,1,0,0.0"),
+                Files.readAllLines(reportDir.resolve("types.csv")));
+        assertEquals(List.of("day,answers,correct,accuracy,averageSeconds", "2026-10-19,2,1,50.0,2.00"),
+                Files.readAllLines(reportDir.resolve("days.csv")));
+    }
+}
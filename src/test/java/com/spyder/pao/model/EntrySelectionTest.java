@@ -0,0 +1,32 @@
+package com.spyder.pao.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntrySelectionTest {
+
+    @Test
+    void parsesRangesAndNumbers() {
+        EntrySelection selection = EntrySelection.parse("0-9, 40-49 63,77", 99);
+
+        assertEquals(22, selection.size());
+        assertEquals("0-9,40-49,63,77", selection.toString());
+    }
+
+    @Test
+    void rejectsNumbersPastTheLastEntry() {
+        for (String spec : new String[] {"100", "5-100", "5-2147483647", "0-1999999999", "2147483647"}) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> EntrySelection.parse(spec, 99), spec);
+            assertEquals("'" + spec + "' is past the last entry 99", e.getMessage());
+        }
+        assertEquals(100, EntrySelection.parse("0-99", 99).size());
+    }
+
+    @Test
+    void rejectsInvalidParts() {
+        for (String spec : new String[] {"-1", "9-5", "a", "1-b", "99999999999"}) {
+            assertThrows(IllegalArgumentException.class, () -> EntrySelection.parse(spec, 99), spec);
+        }
+    }
+}